@@ -17,17 +17,43 @@ package com.gauravk.audiovisualizer.base;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.media.audiofx.Visualizer;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
+import android.view.WindowManager;
 
 import com.gauravk.audiovisualizer.R;
+import com.gauravk.audiovisualizer.engine.GeometryBuffer;
+import com.gauravk.audiovisualizer.engine.VisualizerEngine;
 import com.gauravk.audiovisualizer.utils.AVConstants;
 import com.gauravk.audiovisualizer.model.AnimSpeed;
+import com.gauravk.audiovisualizer.model.AudioLevels;
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.BandReduction;
+import com.gauravk.audiovisualizer.model.BandScale;
+import com.gauravk.audiovisualizer.model.DataSource;
+import com.gauravk.audiovisualizer.model.FftWindow;
+import com.gauravk.audiovisualizer.model.FrameStats;
 import com.gauravk.audiovisualizer.model.PaintStyle;
 import com.gauravk.audiovisualizer.model.PositionGravity;
+import com.gauravk.audiovisualizer.model.VisualizerConfig;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+import com.gauravk.audiovisualizer.utils.BandMapper;
+import com.gauravk.audiovisualizer.utils.FrameChangeDetector;
+import com.gauravk.audiovisualizer.utils.LevelMeter;
+import com.gauravk.audiovisualizer.utils.OnsetDetector;
+import com.gauravk.audiovisualizer.utils.RealFft;
+import com.gauravk.audiovisualizer.utils.SpectrumUtils;
+import com.gauravk.audiovisualizer.utils.TripleBuffer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base class for the visualizers
@@ -37,13 +63,35 @@ import com.gauravk.audiovisualizer.model.PositionGravity;
 
 abstract public class BaseVisualizer extends View {
 
+    private static final int NO_AUDIO_SESSION = -1;
+
+    // audio data of the frame being drawn, only valid while drawing
     protected byte[] mRawAudioBytes;
+    protected float[] mAmplitudes;
+    protected int nSamples;
+    protected float[] mFftMagnitudes;
+    protected int nFftBins;
+
+    // hands off the captured frames to the drawing side
+    private final TripleBuffer<AudioFrame> mFrameBuffer =
+            new TripleBuffer<>(new AudioFrame(), new AudioFrame(), new AudioFrame());
+
+    // computes the geometry, the view only replays it onto the canvas
+    protected VisualizerEngine mEngine;
+    // the options are handed to the engine as a whole, it picks them up at the next frame
+    private VisualizerConfig mConfig;
+    protected final GeometryRenderer mRenderer = new GeometryRenderer();
+
+    // changed only on the drawing thread, from the applied configuration
     protected Paint mPaint;
-    protected Visualizer mVisualizer;
+    private VisualizerConfig mPaintConfig;
     protected int mColor = AVConstants.DEFAULT_COLOR;
 
     protected PaintStyle mPaintStyle = PaintStyle.FILL;
     protected PositionGravity mPositionGravity = PositionGravity.BOTTOM;
+    protected DataSource mDataSource = DataSource.WAVEFORM;
+    protected BandReduction mBandReduction = BandReduction.PEAK;
+    protected BandScale mBandScale = BandScale.LINEAR;
 
     protected float mStrokeWidth = AVConstants.DEFAULT_STROKE_WIDTH;
     protected float mDensity = AVConstants.DEFAULT_DENSITY;
@@ -51,6 +99,126 @@ abstract public class BaseVisualizer extends View {
     protected AnimSpeed mAnimSpeed = AnimSpeed.MEDIUM;
     protected boolean isVisualizationEnabled = true;
 
+    private RenderCallback mRenderCallback;
+
+    // the capture is suspended and no redraws are requested while the visualizer can not be seen
+    private volatile boolean isDisplayed;
+    private boolean isAttached, isHostVisible = true;
+    private int mWindowVisibility = View.GONE;
+    private boolean isCaptureActive;
+
+    private int mAudioSessionId = NO_AUDIO_SESSION;
+
+    private final CaptureHub.OnFrameCaptureListener mCaptureListener = new CaptureHub.OnFrameCaptureListener() {
+        @Override
+        public void onFrameCaptured(DataSource source, AudioFrame frame) {
+            long now = System.nanoTime();
+            boolean isOnset = analyzeFrame(source, frame, now);
+            mFrameBuffer.getBackSlot().copyFrom(source, frame);
+            publishFrame(source, now, isOnset);
+        }
+    };
+
+    // paces the redraws, the one of the thread which draws the visualizer
+    private Choreographer mMainChoreographer;
+    private volatile Choreographer mChoreographer;
+    private final AtomicBoolean isFramePending = new AtomicBoolean();
+    private volatile long mFrameTimeNanos;
+
+    private volatile long mCaptureTimeNanos;
+    private volatile long mCaptureIntervalNanos = AVConstants.DEFAULT_CAPTURE_INTERVAL_NANOS;
+
+    // overrides of the capture configuration, 0 when derived automatically
+    private int mCaptureSize, mCaptureRate;
+
+    // capture rate adapted to the measured draw cost
+    private volatile int mAdaptiveCaptureRate;
+    private long mDrawTimeNanos;
+    private int nDrawnFrames;
+    // capture to draw latency of the last drawn frame, -1 if it drew no new frame
+    private long mDrawnLatencyNanos = -1;
+    private float mRefreshRate = AVConstants.DEFAULT_REFRESH_RATE;
+
+    // opt-in frame statistics, recorded on the drawing thread
+    private volatile boolean isFrameStatsEnabled;
+    private FrameStats mFrameStats, mReportedStats;
+    private OnFrameStatsListener mFrameStatsListener;
+    private int nReportFrames;
+    private final AtomicInteger nPendingCaptures = new AtomicInteger();
+
+    // opt-in levels of the audio, measured on the capture thread
+    private volatile boolean isLevelsEnabled;
+    private final LevelMeter mLevelMeter = new LevelMeter();
+    private final AudioLevels mReportedLevels = new AudioLevels();
+    private volatile OnAudioLevelsListener mLevelsListener;
+
+    // spectrum of the raw audio bytes, computed on the thread which sets them
+    private volatile FftWindow mFftWindow = FftWindow.HANN;
+    private RealFft mRealFft;
+    private volatile int mRawSampleRate = AVConstants.DEFAULT_SAMPLE_RATE;
+
+    // opt-in onsets of the audio, detected on the capture thread
+    private volatile boolean isOnsetDetectionEnabled;
+    private boolean isOnsetRequired;
+    private final OnsetDetector mOnsetDetector = new OnsetDetector();
+    private volatile OnOnsetListener mOnsetListener;
+
+    // silent and unchanged frames are dropped before scheduling a redraw
+    private final FrameChangeDetector mChangeDetector = new FrameChangeDetector();
+    private volatile boolean isUnchangedFrameSkipped = true;
+
+    // the effect is configured on the main thread, frames may be drawn on a render thread
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mUpdateCaptureRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateCaptureSubscription();
+        }
+    };
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isFramePending.set(false);
+            mFrameTimeNanos = frameTimeNanos;
+
+            RenderCallback renderCallback = mRenderCallback;
+            if (renderCallback != null)
+                renderCallback.onRedrawRequested(BaseVisualizer.this);
+            else
+                invalidate();
+        }
+    };
+
+    /**
+     * Receives the redraw requests of a visualizer which is rendered outside of the view hierarchy.
+     * The host reports the time it takes to produce each frame with {@link #reportRenderTime(long)}.
+     */
+    public interface RenderCallback {
+        void onRedrawRequested(BaseVisualizer visualizer);
+    }
+
+    /**
+     * Receives the levels of the audio of a visualizer, see {@link #setOnAudioLevelsListener(OnAudioLevelsListener)}
+     */
+    public interface OnAudioLevelsListener {
+        void onAudioLevels(BaseVisualizer visualizer, AudioLevels levels);
+    }
+
+    /**
+     * Receives the onsets of the audio of a visualizer, see {@link #setOnOnsetListener(OnOnsetListener)}
+     */
+    public interface OnOnsetListener {
+        void onOnset(BaseVisualizer visualizer, long captureTimeNanos, float strength);
+    }
+
+    /**
+     * Receives the frame statistics of a visualizer, see {@link #setOnFrameStatsListener(OnFrameStatsListener, int)}
+     */
+    public interface OnFrameStatsListener {
+        void onFrameStats(BaseVisualizer visualizer, FrameStats stats);
+    }
+
     public BaseVisualizer(Context context) {
         super(context);
         init(context, null);
@@ -98,11 +266,52 @@ abstract public class BaseVisualizer extends View {
                         this.mAnimSpeed = AnimSpeed.FAST;
                 }
 
+                String sourceType = typedArray.getString(R.styleable.BaseVisualizer_avSource);
+                if (sourceType != null && !sourceType.equals(""))
+                    this.mDataSource = sourceType.toLowerCase().equals("spectrum") ? DataSource.SPECTRUM : DataSource.WAVEFORM;
+
+                String reductionType = typedArray.getString(R.styleable.BaseVisualizer_avReduction);
+                if (reductionType != null && !reductionType.equals("")) {
+                    this.mBandReduction = BandReduction.PEAK;
+                    if (reductionType.toLowerCase().equals("mean"))
+                        this.mBandReduction = BandReduction.MEAN_ABS;
+                    else if (reductionType.toLowerCase().equals("rms"))
+                        this.mBandReduction = BandReduction.RMS;
+                }
+
+                String scaleType = typedArray.getString(R.styleable.BaseVisualizer_avScale);
+                if (scaleType != null && !scaleType.equals("")) {
+                    this.mBandScale = BandScale.LINEAR;
+                    if (scaleType.toLowerCase().equals("log"))
+                        this.mBandScale = BandScale.LOG;
+                    else if (scaleType.toLowerCase().equals("octave"))
+                        this.mBandScale = BandScale.OCTAVE;
+                    else if (scaleType.toLowerCase().equals("mel"))
+                        this.mBandScale = BandScale.MEL;
+                }
+
             } finally {
                 typedArray.recycle();
             }
         }
 
+        mConfig = VisualizerConfig.DEFAULT
+                .withDensity(mDensity)
+                .withPaintStyle(mPaintStyle)
+                .withPositionGravity(mPositionGravity)
+                .withAnimationSpeed(mAnimSpeed)
+                .withDataSource(mDataSource)
+                .withBandReduction(mBandReduction)
+                .withBandScale(mBandScale)
+                .withColor(mColor)
+                .withStrokeWidth(mStrokeWidth);
+        mEngine = createEngine();
+        mEngine.setConfig(mConfig);
+        mEngine.applyPendingConfig();
+
+        mMainChoreographer = Choreographer.getInstance();
+        mChoreographer = mMainChoreographer;
+
         mPaint = new Paint();
         mPaint.setColor(mColor);
         mPaint.setStrokeWidth(mStrokeWidth);
@@ -120,7 +329,7 @@ abstract public class BaseVisualizer extends View {
      */
     public void setColor(int color) {
         this.mColor = color;
-        this.mPaint.setColor(this.mColor);
+        updateConfig(mConfig.withColor(color));
     }
 
     /**
@@ -129,11 +338,8 @@ abstract public class BaseVisualizer extends View {
      * @param density density for visualization
      */
     public void setDensity(float density) {
-        //TODO: Check dynamic density change, may cause crash
-        synchronized (this) {
-            this.mDensity = density;
-            init();
-        }
+        this.mDensity = density;
+        updateConfig(mConfig.withDensity(density));
     }
 
     /**
@@ -143,7 +349,7 @@ abstract public class BaseVisualizer extends View {
      */
     public void setPaintStyle(PaintStyle paintStyle) {
         this.mPaintStyle = paintStyle;
-        this.mPaint.setStyle(paintStyle == PaintStyle.FILL ? Paint.Style.FILL : Paint.Style.STROKE);
+        updateConfig(mConfig.withPaintStyle(paintStyle));
     }
 
     /**
@@ -153,6 +359,7 @@ abstract public class BaseVisualizer extends View {
      */
     public void setPositionGravity(PositionGravity positionGravity) {
         this.mPositionGravity = positionGravity;
+        updateConfig(mConfig.withPositionGravity(positionGravity));
     }
 
     /**
@@ -162,6 +369,78 @@ abstract public class BaseVisualizer extends View {
      */
     public void setAnimationSpeed(AnimSpeed animSpeed) {
         this.mAnimSpeed = animSpeed;
+        updateConfig(mConfig.withAnimationSpeed(animSpeed));
+    }
+
+    /**
+     * Sets the time constants of the smoothing of the bars and the wave, which follow every captured frame
+     *
+     * @param attackMillis  time constant of rising magnitudes, 0 to derive it from the animation speed
+     * @param releaseMillis time constant of falling magnitudes, 0 to derive it from the animation speed
+     */
+    public void setSmoothing(long attackMillis, long releaseMillis) {
+        updateConfig(mConfig.withSmoothing(attackMillis, releaseMillis));
+    }
+
+    /**
+     * Sets the source of the visualized data{@link DataSource}
+     * <p>
+     * {@link DataSource#SPECTRUM} captures the FFT of the audio, so the visualizers
+     * animate the frequency content instead of the raw waveform.
+     *
+     * @param dataSource source of the visualized data
+     */
+    public void setDataSource(DataSource dataSource) {
+        if (this.mDataSource == dataSource)
+            return;
+
+        this.mDataSource = dataSource;
+        updateConfig(mConfig.withDataSource(dataSource));
+        mChangeDetector.reset();
+        mOnsetDetector.reset();
+        updateCaptureSubscription();
+    }
+
+    /**
+     * Sets how the waveform samples which fall into a point are aggregated{@link BandReduction}
+     *
+     * @param bandReduction peak, mean absolute or rms of the samples
+     */
+    public void setBandReduction(BandReduction bandReduction) {
+        this.mBandReduction = bandReduction;
+        updateConfig(mConfig.withBandReduction(bandReduction));
+    }
+
+    /**
+     * Sets how the spectrum bins are grouped into the points{@link BandScale}, log, octave and mel bands
+     * give the bass as many points as the treble
+     *
+     * @param bandScale linear, log, octave or mel bands
+     */
+    public void setBandScale(BandScale bandScale) {
+        this.mBandScale = bandScale;
+        updateConfig(mConfig.withBandScale(bandScale));
+        updateCaptureSubscription();
+    }
+
+    /**
+     * Get the latest configuration, it may not be applied to the engine yet
+     *
+     * @return snapshot of the options
+     */
+    protected VisualizerConfig getConfig() {
+        return mConfig;
+    }
+
+    /**
+     * Hands a new configuration to the engine, it is applied at the start of the next frame
+     *
+     * @param config snapshot of the options
+     */
+    protected void updateConfig(VisualizerConfig config) {
+        mConfig = config;
+        mEngine.setConfig(config);
+        requestRedraw();
     }
 
     /**
@@ -171,54 +450,695 @@ abstract public class BaseVisualizer extends View {
      */
     public void setStrokeWidth(float width) {
         this.mStrokeWidth = width;
-        this.mPaint.setStrokeWidth(width);
+        updateConfig(mConfig.withStrokeWidth(width));
     }
 
     /**
      * Sets the audio bytes to be visualized form {@link Visualizer} or other sources
+     * <p>
+     * The bytes are copied, frames must be set from a single thread. With {@link DataSource#SPECTRUM}
+     * the spectrum of the latest samples is computed, see {@link #setFftWindow(FftWindow)}.
      *
      * @param bytes of the raw bytes of music
      */
     public void setRawAudioBytes(byte[] bytes) {
-        this.mRawAudioBytes = bytes;
-        this.invalidate();
+        long now = System.nanoTime();
+        AudioFrame frame = mFrameBuffer.getBackSlot();
+        frame.setWaveform(bytes);
+        frame.sampleRate = mRawSampleRate;
+
+        DataSource source = DataSource.WAVEFORM;
+        if (mDataSource == DataSource.SPECTRUM) {
+            frame.computeFft(getRealFft(frame.sampleCount));
+            source = DataSource.SPECTRUM;
+        }
+        publishFrame(source, now, analyzeFrame(source, frame, now));
+    }
+
+    /**
+     * Sets the window applied to the samples set with {@link #setRawAudioBytes(byte[])} before
+     * computing their spectrum, the {@link Visualizer} captures are not affected
+     *
+     * @param window to apply, {@link FftWindow#HANN} by default
+     */
+    public void setFftWindow(FftWindow window) {
+        this.mFftWindow = window;
+    }
+
+    /**
+     * Sets the sample rate of the bytes set with {@link #setRawAudioBytes(byte[])} and
+     * {@link #setRawFftBytes(byte[])}, it places the spectrum bands of {@link #setBandScale(BandScale)}
+     *
+     * @param sampleRate in Hz, {@link AVConstants#DEFAULT_SAMPLE_RATE} by default
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate > 0)
+            this.mRawSampleRate = sampleRate;
+    }
+
+    private RealFft getRealFft(int samples) {
+        int size = RealFft.getFittingSize(samples);
+        RealFft fft = mRealFft;
+        if (fft == null || fft.getSize() != size || fft.getWindow() != mFftWindow) {
+            fft = new RealFft(size, mFftWindow);
+            mRealFft = fft;
+        }
+        return fft;
+    }
+
+    /**
+     * Sets the FFT bytes to be visualized, used with {@link DataSource#SPECTRUM}
+     * <p>
+     * The bytes must follow the {@link Visualizer#getFft(byte[])} format,
+     * frames must be set from a single thread.
+     *
+     * @param bytes of the fft of the music
+     */
+    public void setRawFftBytes(byte[] bytes) {
+        long now = System.nanoTime();
+        AudioFrame frame = mFrameBuffer.getBackSlot();
+        frame.setFft(bytes);
+        frame.sampleRate = mRawSampleRate;
+        publishFrame(DataSource.SPECTRUM, now, analyzeFrame(DataSource.SPECTRUM, frame, now));
     }
 
     /**
      * Sets the audio session id for the currently playing audio
+     * <p>
+     * Visualizers of the same session share one {@link Visualizer} effect through the {@link CaptureHub}.
      *
      * @param audioSessionId of the media to be visualised
      */
     public void setAudioSessionId(int audioSessionId) {
-        if (mVisualizer != null)
+        if (mAudioSessionId != NO_AUDIO_SESSION)
             release();
 
-        mVisualizer = new Visualizer(audioSessionId);
-        mVisualizer.setCaptureSize(Visualizer.getCaptureSizeRange()[1]);
+        mAdaptiveCaptureRate = CaptureHub.getInstance().getDefaultCaptureRate();
+        mCaptureTimeNanos = 0;
+        mCaptureIntervalNanos = 1000000000000L / getCaptureRate();
 
-        mVisualizer.setDataCaptureListener(new Visualizer.OnDataCaptureListener() {
-            @Override
-            public void onWaveFormDataCapture(Visualizer visualizer, byte[] bytes,
-                                              int samplingRate) {
-                BaseVisualizer.this.mRawAudioBytes = bytes;
-                invalidate();
+        mAudioSessionId = audioSessionId;
+        updateCaptureSubscription();
+    }
+
+    /**
+     * Sets the number of samples to capture, rounded up to a size supported by {@link Visualizer}
+     *
+     * @param captureSize number of samples, 0 to derive it from the points of the visualizer and,
+     *                    for non-linear spectrum bands, from the width of the narrowest band
+     */
+    public void setCaptureSize(int captureSize) {
+        this.mCaptureSize = captureSize;
+        updateCaptureSubscription();
+    }
+
+    /**
+     * Sets the capture rate, visualizers of the same session capture at the highest requested rate
+     *
+     * @param captureRate in milliHertz, 0 to adapt it to the draw cost and the display refresh rate
+     */
+    public void setCaptureRate(int captureRate) {
+        this.mCaptureRate = captureRate;
+        updateCaptureSubscription();
+    }
+
+    /**
+     * Sets whether silent frames and frames close to the last drawn one are dropped without a redraw,
+     * the visualization is still drawn until it settles. Enabled by default.
+     *
+     * @param skip false to redraw every captured frame
+     */
+    public void setSkipUnchangedFrames(boolean skip) {
+        this.isUnchangedFrameSkipped = skip;
+        mChangeDetector.reset();
+    }
+
+    /**
+     * Get the number of points the visualizer samples from each frame, used to derive the capture size
+     *
+     * @return number of points
+     */
+    protected int getCapturePoints() {
+        return mEngine.getPoints();
+    }
+
+    private int getCaptureSize() {
+        if (mCaptureSize > 0)
+            return mCaptureSize;
+
+        int captureSize = getCapturePoints() * AVConstants.CAPTURE_SAMPLES_PER_POINT;
+        if (mDataSource == DataSource.SPECTRUM && mBandScale != BandScale.LINEAR) {
+            // the narrowest band needs a bin of its own, the hub caps the size to the supported range
+            captureSize = Math.max(captureSize, BandMapper.getMinFftSize(mBandScale,
+                    AVConstants.DEFAULT_SAMPLE_RATE, getCapturePoints()));
+        }
+        return captureSize;
+    }
+
+    private int getCaptureRate() {
+        return mCaptureRate > 0 ? mCaptureRate : mAdaptiveCaptureRate;
+    }
+
+    private void updateCaptureSubscription() {
+        if (mAudioSessionId != NO_AUDIO_SESSION) {
+            CaptureHub.getInstance().subscribe(mAudioSessionId, mDataSource,
+                    getCaptureSize(), getCaptureRate(), isCaptureActive, mCaptureListener);
+            CaptureHub.getInstance().setMeasured(mAudioSessionId, mCaptureListener, isLevelsEnabled);
+        }
+    }
+
+    /**
+     * Suspends the capture while the visualizer is hidden or can not be seen, and resumes it
+     * without creating the effect again once it is displayed
+     */
+    private void updateDisplayState() {
+        isDisplayed = mRenderCallback != null ? isHostVisible
+                : isAttached && mWindowVisibility == View.VISIBLE && isShown();
+
+        boolean active = isDisplayed && isVisualizationEnabled;
+        if (active == isCaptureActive)
+            return;
+
+        isCaptureActive = active;
+        mChangeDetector.reset();
+        if (mAudioSessionId != NO_AUDIO_SESSION)
+            CaptureHub.getInstance().setActive(mAudioSessionId, mCaptureListener, active);
+        requestRedraw();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        if (windowManager != null)
+            mRefreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+
+        isAttached = true;
+        mWindowVisibility = getWindowVisibility();
+        updateDisplayState();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        isAttached = false;
+        updateDisplayState();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateDisplayState();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mWindowVisibility = visibility;
+        updateDisplayState();
+    }
+
+    /**
+     * Sets whether the host of a visualizer rendered outside of the view hierarchy is visible,
+     * see {@link #setRenderCallback(RenderCallback)}. The capture is suspended while it is not.
+     *
+     * @param visible true if the rendered visualizer can be seen
+     */
+    public void setHostVisible(boolean visible) {
+        this.isHostVisible = visible;
+        updateDisplayState();
+    }
+
+    /**
+     * Picks up the latest captured frame before drawing, it stays the same for the whole draw
+     */
+    @Override
+    public void draw(Canvas canvas) {
+        boolean isNewFrame = mFrameBuffer.update();
+        AudioFrame frame = mFrameBuffer.getFrontSlot();
+        if (isNewFrame) {
+            mRawAudioBytes = frame.waveform;
+            mAmplitudes = frame.amplitudes;
+            nSamples = frame.sampleCount;
+            mFftMagnitudes = frame.fftMagnitudes;
+            nFftBins = frame.fftBins;
+        }
+
+        long drawStartNanos = System.nanoTime();
+        super.draw(canvas);
+        long drawEndNanos = System.nanoTime();
+        mDrawnLatencyNanos = isNewFrame ? drawEndNanos - frame.captureTimeNanos : -1;
+
+        //in the view hierarchy only the recording of the display list is measured, a host
+        //rendering on its own thread reports the whole time it takes to produce the frame
+        if (mRenderCallback == null)
+            onFrameRendered(drawEndNanos - drawStartNanos);
+    }
+
+    /**
+     * Reports the time a host which renders this visualizer outside of the view hierarchy took to
+     * produce a frame, from locking its canvas to posting it. Called on the drawing thread after
+     * {@link #draw(Canvas)}, the capture rate adapts to it.
+     *
+     * @param renderTimeNanos time taken to produce the frame
+     */
+    public void reportRenderTime(long renderTimeNanos) {
+        if (mRenderCallback != null)
+            onFrameRendered(renderTimeNanos);
+    }
+
+    private void onFrameRendered(long renderTimeNanos) {
+        adaptCaptureRate(renderTimeNanos);
+        if (isFrameStatsEnabled)
+            recordFrameStats(renderTimeNanos, mDrawnLatencyNanos);
+    }
+
+    /**
+     * Enables the recording of the frame statistics, see {@link FrameStats}
+     *
+     * @param enabled true to record the statistics, they are reset when disabled
+     */
+    public void setFrameStatsEnabled(boolean enabled) {
+        synchronized (this) {
+            if (enabled && mFrameStats == null) {
+                mFrameStats = new FrameStats();
+                mReportedStats = new FrameStats();
             }
+            if (!enabled && mFrameStats != null)
+                mFrameStats.reset();
+            nPendingCaptures.set(0);
+            isFrameStatsEnabled = enabled;
+        }
+    }
+
+    /**
+     * Sets the listener which receives the frame statistics, the statistics are reset after each report.
+     * It is called on the drawing thread and must not keep the passed statistics.
+     *
+     * @param listener     to receive the statistics, null to stop reporting
+     * @param reportFrames number of drawn frames between two reports
+     */
+    public void setOnFrameStatsListener(@Nullable OnFrameStatsListener listener, int reportFrames) {
+        synchronized (this) {
+            this.mFrameStatsListener = listener;
+            this.nReportFrames = reportFrames;
+        }
+        if (listener != null)
+            setFrameStatsEnabled(true);
+    }
+
+    /**
+     * Copies the frame statistics recorded since the last report or reset
+     *
+     * @param stats to copy into
+     * @return false if the statistics are not enabled
+     */
+    public boolean getFrameStats(FrameStats stats) {
+        synchronized (this) {
+            if (!isFrameStatsEnabled)
+                return false;
+            mFrameStats.copyTo(stats);
+            return true;
+        }
+    }
 
-            @Override
-            public void onFftDataCapture(Visualizer visualizer, byte[] bytes,
-                                         int samplingRate) {
+    /**
+     * Resets the frame statistics
+     */
+    public void resetFrameStats() {
+        synchronized (this) {
+            if (mFrameStats != null)
+                mFrameStats.reset();
+        }
+    }
+
+    private void recordFrameStats(long drawTimeNanos, long latencyNanos) {
+        OnFrameStatsListener listener = null;
+        synchronized (this) {
+            if (!isFrameStatsEnabled)
+                return;
+
+            mFrameStats.recordCaptured(nPendingCaptures.getAndSet(0));
+            mFrameStats.recordDraw(drawTimeNanos, getFrameBudgetNanos());
+            if (latencyNanos >= 0)
+                mFrameStats.recordCaptureDrawn(latencyNanos);
+
+            if (mFrameStatsListener != null && mFrameStats.getDrawnFrames() >= nReportFrames) {
+                listener = mFrameStatsListener;
+                mFrameStats.copyTo(mReportedStats);
+                mFrameStats.reset();
             }
-        }, Visualizer.getMaxCaptureRate() / 2, true, false);
+        }
+        if (listener != null)
+            listener.onFrameStats(this, mReportedStats);
+    }
+
+    private long getFrameBudgetNanos() {
+        return (long) (1000000000L / mRefreshRate);
+    }
+
+    /**
+     * Enables the levels of the audio, see {@link AudioLevels}. The effect measures them on the played
+     * audio from KitKat on, otherwise they are measured on the captured waveform.
+     *
+     * @param enabled true to measure the levels, they are reset when disabled
+     */
+    public void setLevelsEnabled(boolean enabled) {
+        if (isLevelsEnabled == enabled)
+            return;
+
+        mLevelMeter.reset();
+        isLevelsEnabled = enabled;
+        if (mAudioSessionId != NO_AUDIO_SESSION)
+            CaptureHub.getInstance().setMeasured(mAudioSessionId, mCaptureListener, enabled);
+    }
+
+    /**
+     * Sets the listener which receives the levels of each captured frame.
+     * It is called on the capture thread and must not keep the passed levels.
+     *
+     * @param listener to receive the levels, null to stop reporting
+     */
+    public void setOnAudioLevelsListener(@Nullable OnAudioLevelsListener listener) {
+        this.mLevelsListener = listener;
+        if (listener != null)
+            setLevelsEnabled(true);
+    }
+
+    /**
+     * Copies the latest levels of the audio
+     *
+     * @param levels to copy into
+     * @return false if the levels are not enabled
+     */
+    public boolean getAudioLevels(AudioLevels levels) {
+        if (!isLevelsEnabled)
+            return false;
+        mLevelMeter.getLevels(levels);
+        return true;
+    }
+
+    /**
+     * Sets the listener which is notified of the onsets of the audio, the beats and attacks found
+     * as sudden rises of the energy of the captured frames. It is called on the capture thread.
+     *
+     * @param listener to receive the onsets, null to stop reporting
+     */
+    public void setOnOnsetListener(@Nullable OnOnsetListener listener) {
+        this.mOnsetListener = listener;
+        updateOnsetDetection();
+    }
+
+    /**
+     * Sets how far the energy of a frame must rise above its recent average to be an onset
+     *
+     * @param sensitivity in standard deviations of the recent rises, lower detects more onsets
+     */
+    public void setOnsetSensitivity(float sensitivity) {
+        mOnsetDetector.setSensitivity(sensitivity);
+    }
+
+    /**
+     * Sets how much the visualizers which react to onsets, blast and blob, grow on an onset of the audio.
+     * They shrink back within a few frames.
+     *
+     * @param kick fraction of the radius added by an onset of full strength, 0 to ignore the onsets
+     */
+    public void setOnsetKick(float kick) {
+        updateConfig(mConfig.withOnsetKick(kick));
+        //the detection stays on once enabled, a listener or the view itself may still need the onsets
+        if (kick > 0)
+            setOnsetDetectionRequired(true);
+    }
+
+    /**
+     * Sets whether a visualizer needs the onsets of the audio to animate, they are stamped on
+     * the frames passed to its engine, see {@link AudioFrame#onsetTimeNanos}
+     *
+     * @param required true to detect the onsets even without a listener
+     */
+    protected void setOnsetDetectionRequired(boolean required) {
+        this.isOnsetRequired = required;
+        updateOnsetDetection();
+    }
+
+    private void updateOnsetDetection() {
+        boolean enabled = isOnsetRequired || mOnsetListener != null;
+        if (isOnsetDetectionEnabled == enabled)
+            return;
+
+        mOnsetDetector.reset();
+        isOnsetDetectionEnabled = enabled;
+    }
+
+    /**
+     * Measures the levels and detects the onsets of a frame, on the capture thread
+     *
+     * @return true if the frame is an onset
+     */
+    private boolean analyzeFrame(DataSource source, AudioFrame frame, long now) {
+        if (isLevelsEnabled)
+            updateLevels(source, frame, now);
+        if (!isOnsetDetectionEnabled || !mOnsetDetector.process(frame, source, now))
+            return false;
+
+        OnOnsetListener listener = mOnsetListener;
+        if (listener != null)
+            listener.onOnset(this, now, mOnsetDetector.getOnsetStrength());
+        return true;
+    }
+
+    private void updateLevels(DataSource source, AudioFrame frame, long now) {
+        if (frame.hasMeasurement)
+            mLevelMeter.addLevels(frame.measuredPeak, frame.measuredRms, now);
+        else if (frame.hasData(DataSource.WAVEFORM))
+            mLevelMeter.addSamples(frame.amplitudes, frame.sampleCount, now);
+        else
+            return;
+
+        OnAudioLevelsListener listener = mLevelsListener;
+        if (listener != null) {
+            mLevelMeter.getLevels(mReportedLevels);
+            listener.onAudioLevels(this, mReportedLevels);
+        }
+    }
+
+    /**
+     * Adapts the capture rate to the average draw time, the rate is halved when drawing takes more than
+     * half of the frame budget and doubled when it takes less than an eighth, up to the highest rate of
+     * the effect or the display refresh rate.
+     */
+    private void adaptCaptureRate(long drawTimeNanos) {
+        mDrawTimeNanos += drawTimeNanos;
+        if (++nDrawnFrames < AVConstants.CAPTURE_RATE_EVALUATION_FRAMES)
+            return;
+
+        long averageDrawTime = mDrawTimeNanos / nDrawnFrames;
+        mDrawTimeNanos = 0;
+        nDrawnFrames = 0;
+
+        if (mCaptureRate > 0 || mAudioSessionId == NO_AUDIO_SESSION)
+            return;
+
+        //capturing faster than the display refreshes is wasted
+        int maxRate = Math.min(Visualizer.getMaxCaptureRate(), (int) (mRefreshRate * 1000));
+        long frameBudget = getFrameBudgetNanos();
 
-        mVisualizer.setEnabled(true);
+        int rate = mAdaptiveCaptureRate;
+        if (averageDrawTime > frameBudget / 2)
+            rate = Math.max(rate / 2, AVConstants.MIN_CAPTURE_RATE);
+        else if (averageDrawTime < frameBudget / 8)
+            rate = rate * 2;
+        rate = Math.min(rate, maxRate);
+
+        if (rate != mAdaptiveCaptureRate) {
+            mAdaptiveCaptureRate = rate;
+            mMainHandler.post(mUpdateCaptureRunnable);
+        }
+    }
+
+    /**
+     * Checks if there is audio data to visualize for the current {@link DataSource}
+     *
+     * @return true if data is available
+     */
+    protected boolean isAudioDataAvailable() {
+        if (mDataSource == DataSource.SPECTRUM)
+            return mFftMagnitudes != null && nFftBins > 0;
+        return mAmplitudes != null && nSamples > 0;
+    }
+
+    /**
+     * Get the latest captured frame, it stays the same for the whole draw
+     *
+     * @return frame to be drawn, null if the visualization is disabled or there is no data yet
+     */
+    @Nullable
+    protected AudioFrame getAudioFrame() {
+        AudioFrame frame = mFrameBuffer.getFrontSlot();
+        return isVisualizationEnabled && frame.hasData(mDataSource) ? frame : null;
+    }
+
+    /**
+     * Updates the engine with the latest configuration and frame,
+     * a redraw is requested while the engine is animating
+     *
+     * @return geometry of the frame to be drawn
+     */
+    protected GeometryBuffer updateEngine() {
+        //the capture size follows the number of points, it is configured on the main thread
+        boolean isPointCountChanged = mEngine.applyPendingConfig();
+        if (isPointCountChanged)
+            mMainHandler.post(mUpdateCaptureRunnable);
+
+        VisualizerConfig config = mEngine.getAppliedConfig();
+        if (config != mPaintConfig) {
+            mPaintConfig = config;
+            applyPaintConfig(config);
+        }
+
+        int width = mEngine.getWidth(), height = mEngine.getHeight();
+        mEngine.setSize(getWidth(), getHeight());
+        onEngineConfigured(isPointCountChanged || width != getWidth() || height != getHeight());
+        if (mEngine.update(getAudioFrame(), getFrameTimeNanos()))
+            requestRedraw();
+        return mEngine.getGeometry();
+    }
+
+    /**
+     * Applies the paint options of a new configuration to {@link #mPaint}, on the drawing thread
+     * before {@link #onEngineConfigured(boolean)}
+     *
+     * @param config snapshot of the options
+     */
+    protected void applyPaintConfig(VisualizerConfig config) {
+        mPaint.setColor(config.getColor());
+        mPaint.setStrokeWidth(config.getStrokeWidth());
+        mPaint.setStyle(config.getPaintStyle() == PaintStyle.FILL ? Paint.Style.FILL : Paint.Style.STROKE);
+    }
+
+    /**
+     * Called on the drawing thread once the engine has the configuration and the size of the frame,
+     * before it computes the geometry. Paints which depend on the engine layout are updated here.
+     *
+     * @param isLayoutChanged true if the number of points or the size changed since the last frame
+     */
+    protected void onEngineConfigured(boolean isLayoutChanged) {
+    }
+
+    /**
+     * Get the spectrum magnitude of a point, the peak of the fft bins which fall into it.
+     * The DC bin is skipped.
+     *
+     * @param point  index of the point
+     * @param points total number of points
+     * @return magnitude in range [0, 1]
+     */
+    protected float getSpectrumMagnitude(int point, int points) {
+        return SpectrumUtils.getPeakMagnitude(mFftMagnitudes, nFftBins, point, points);
+    }
+
+    /**
+     * Sets the callback which renders this visualizer outside of the view hierarchy,
+     * the view is no longer invalidated when new audio data arrives
+     *
+     * @param renderCallback to receive the redraw requests, null to invalidate the view
+     */
+    public void setRenderCallback(@Nullable RenderCallback renderCallback) {
+        this.mRenderCallback = renderCallback;
+        updateDisplayState();
+    }
+
+    /**
+     * Sets the choreographer which paces the redraws, it must belong to the thread which draws the
+     * visualizer so a busy main thread does not delay the frames of a render thread
+     *
+     * @param choreographer of the drawing thread, null for the one of the main thread
+     */
+    public void setFrameChoreographer(@Nullable Choreographer choreographer) {
+        Choreographer previous = mChoreographer;
+        mChoreographer = choreographer != null ? choreographer : mMainChoreographer;
+        if (mChoreographer == previous)
+            return;
+
+        //a callback pending on the previous choreographer may never run once its thread quits
+        previous.removeFrameCallback(mFrameCallback);
+        isFramePending.set(false);
+        requestRedraw();
+    }
+
+    /**
+     * Requests the visualizer to be drawn again at the next display frame,
+     * requests are coalesced until the frame is drawn and dropped while it is not displayed
+     */
+    protected void requestRedraw() {
+        if (isDisplayed && isFramePending.compareAndSet(false, true))
+            mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    /**
+     * Publishes the filled frame with its timestamp and schedules a redraw,
+     * unless the frame would not visibly change the visualization. Onsets are always published.
+     */
+    private void publishFrame(DataSource source, long now, boolean isOnset) {
+        long lastCaptureTime = mCaptureTimeNanos;
+        if (lastCaptureTime != 0) {
+            long interval = now - lastCaptureTime;
+            if (interval > AVConstants.MIN_CAPTURE_INTERVAL_NANOS && interval < AVConstants.MAX_CAPTURE_INTERVAL_NANOS)
+                mCaptureIntervalNanos = interval;
+        }
+        mCaptureTimeNanos = now;
+
+        AudioFrame frame = mFrameBuffer.getBackSlot();
+        if (isUnchangedFrameSkipped && !isOnset && !mChangeDetector.isChanged(frame, source, mEngine.getSettleFrames()))
+            return;
+
+        frame.captureTimeNanos = now;
+        frame.captureIntervalNanos = mCaptureIntervalNanos;
+        frame.onsetTimeNanos = mOnsetDetector.getOnsetTimeNanos();
+        frame.onsetStrength = mOnsetDetector.getOnsetStrength();
+        mFrameBuffer.publish();
+        if (isFrameStatsEnabled)
+            nPendingCaptures.incrementAndGet();
+        requestRedraw();
+    }
+
+    /**
+     * Get the time of the frame being drawn, in the {@link System#nanoTime()} time base
+     *
+     * @return vsync time of the current frame
+     */
+    protected long getFrameTimeNanos() {
+        long frameTime = mFrameTimeNanos;
+        return frameTime != 0 ? frameTime : System.nanoTime();
+    }
+
+    /**
+     * Get the time at which the latest capture frame was received
+     *
+     * @return capture time in the {@link System#nanoTime()} time base, 0 if no frame was captured
+     */
+    protected long getCaptureTimeNanos() {
+        return mCaptureTimeNanos;
+    }
+
+    /**
+     * Get the measured time between the last two capture frames
+     *
+     * @return capture interval in nanoseconds
+     */
+    protected long getCaptureIntervalNanos() {
+        return mCaptureIntervalNanos;
     }
 
     /**
      * Releases the visualizer
      */
     public void release() {
-        if (mVisualizer != null)
-            mVisualizer.release();
+        if (mAudioSessionId != NO_AUDIO_SESSION) {
+            CaptureHub.getInstance().unsubscribe(mAudioSessionId, mCaptureListener);
+            mAudioSessionId = NO_AUDIO_SESSION;
+        }
     }
 
     /**
@@ -226,6 +1146,7 @@ abstract public class BaseVisualizer extends View {
      */
     public void show() {
         this.isVisualizationEnabled = true;
+        updateDisplayState();
     }
 
     /**
@@ -233,8 +1154,30 @@ abstract public class BaseVisualizer extends View {
      */
     public void hide() {
         this.isVisualizationEnabled = false;
+        updateDisplayState();
     }
 
-    protected abstract void init();
+    /**
+     * Enables the trace sections around the stages of the visualizers, for systrace and Perfetto.
+     * Should be set before the visualizers start.
+     *
+     * @param enabled true to trace into the system trace
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        AVTrace.setBackend(enabled ? new SystemTraceBackend() : null);
+    }
+
+    /**
+     * Creates the engine of the visualizer, called once from the constructor
+     *
+     * @return engine computing the geometry
+     */
+    protected abstract VisualizerEngine createEngine();
+
+    /**
+     * Initializes the view side of the visualizer, called once from the constructor
+     */
+    protected void init() {
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,389 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.base;
+
+import android.media.audiofx.Visualizer;
+import android.os.Build;
+import android.util.SparseArray;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.DataSource;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+
+import java.util.ArrayList;
+
+/**
+ * Process wide hub sharing one {@link Visualizer} effect per audio session between all its listeners.
+ * <p>
+ * The effect is created for the first listener of a session and released when the last one unsubscribes.
+ * Each captured frame is decoded once and fanned out to every listener, the frame passed to the
+ * listeners is reused and must be copied if it is needed after the callback returns. The listeners are
+ * called without holding the hub, so a listener may still receive a frame which was captured just
+ * before it unsubscribed.
+ * <p>
+ * The capture size and rate of a session are the largest ones requested by its listeners.
+ * Inactive listeners do not take part in it, the effect of a session without active listeners is
+ * disabled but kept, so the capture resumes without creating the effect again.
+ */
+public class CaptureHub {
+
+    private static CaptureHub sInstance;
+
+    private final SparseArray<Session> mSessions = new SparseArray<>();
+
+    /**
+     * Receives the decoded frames of an audio session
+     */
+    public interface OnFrameCaptureListener {
+        void onFrameCaptured(DataSource source, AudioFrame frame);
+    }
+
+    public static synchronized CaptureHub getInstance() {
+        if (sInstance == null)
+            sInstance = new CaptureHub();
+        return sInstance;
+    }
+
+    private CaptureHub() {
+    }
+
+    /**
+     * Subscribes a listener to the frames of an audio session, at the maximum capture size and
+     * the default capture rate.
+     *
+     * @param audioSessionId of the media to be visualised
+     * @param source         data to be delivered to the listener
+     * @param listener       to receive the frames
+     */
+    public void subscribe(int audioSessionId, DataSource source, OnFrameCaptureListener listener) {
+        subscribe(audioSessionId, source, 0, 0, listener);
+    }
+
+    /**
+     * Subscribes a listener to the frames of an audio session, or updates an existing subscription.
+     * The effect of the session is created if needed.
+     *
+     * @param audioSessionId of the media to be visualised
+     * @param source         data to be delivered to the listener
+     * @param captureSize    number of samples needed by the listener, 0 for the maximum capture size
+     * @param captureRate    capture rate needed by the listener in milliHertz, 0 for the default rate
+     * @param listener       to receive the frames
+     */
+    public void subscribe(int audioSessionId, DataSource source, int captureSize,
+                          int captureRate, OnFrameCaptureListener listener) {
+        subscribe(audioSessionId, source, captureSize, captureRate, true, listener);
+    }
+
+    /**
+     * Subscribes a listener to the frames of an audio session, or updates an existing subscription.
+     * The effect of the session is created if needed and only enabled while it has active listeners.
+     *
+     * @param audioSessionId of the media to be visualised
+     * @param source         data to be delivered to the listener
+     * @param captureSize    number of samples needed by the listener, 0 for the maximum capture size
+     * @param captureRate    capture rate needed by the listener in milliHertz, 0 for the default rate
+     * @param active         whether the listener currently needs frames
+     * @param listener       to receive the frames
+     */
+    public synchronized void subscribe(int audioSessionId, DataSource source, int captureSize,
+                                       int captureRate, boolean active, OnFrameCaptureListener listener) {
+        Session session = mSessions.get(audioSessionId);
+        if (session == null) {
+            session = new Session(audioSessionId);
+            mSessions.put(audioSessionId, session);
+        }
+        session.subscribe(source, captureSize, captureRate, active, listener);
+    }
+
+    /**
+     * Suspends or resumes the frames of a subscribed listener, the effect of the session stays
+     * allocated while it is suspended
+     *
+     * @param audioSessionId of the subscription
+     * @param listener       subscribed listener
+     * @param active         whether the listener currently needs frames
+     */
+    public synchronized void setActive(int audioSessionId, OnFrameCaptureListener listener, boolean active) {
+        Session session = mSessions.get(audioSessionId);
+        if (session != null)
+            session.setActive(listener, active);
+    }
+
+    /**
+     * Requests the peak and rms of the played audio with the frames of a subscribed listener,
+     * see {@link AudioFrame#hasMeasurement}. The effect measures them from KitKat on.
+     *
+     * @param audioSessionId of the subscription
+     * @param listener       subscribed listener
+     * @param measured       whether the listener needs the levels
+     */
+    public synchronized void setMeasured(int audioSessionId, OnFrameCaptureListener listener, boolean measured) {
+        Session session = mSessions.get(audioSessionId);
+        if (session != null)
+            session.setMeasured(listener, measured);
+    }
+
+    /**
+     * Unsubscribes a listener, the effect of the session is released with its last listener
+     *
+     * @param audioSessionId of the subscription
+     * @param listener       to be removed
+     */
+    public synchronized void unsubscribe(int audioSessionId, OnFrameCaptureListener listener) {
+        Session session = mSessions.get(audioSessionId);
+        if (session == null)
+            return;
+
+        session.unsubscribe(listener);
+        if (session.isEmpty()) {
+            session.release();
+            mSessions.remove(audioSessionId);
+        }
+    }
+
+    /**
+     * Get the capture rate used when no rate is requested
+     *
+     * @return capture rate in milliHertz
+     */
+    public int getDefaultCaptureRate() {
+        return Visualizer.getMaxCaptureRate() / 2;
+    }
+
+    /**
+     * Rounds the requested capture size up to a supported one
+     *
+     * @param captureSize number of samples requested, 0 for the maximum
+     * @return power of two capture size in the supported range
+     */
+    private static int toSupportedCaptureSize(int captureSize) {
+        int[] range = Visualizer.getCaptureSizeRange();
+        if (captureSize <= 0 || captureSize >= range[1])
+            return range[1];
+
+        int size = range[0];
+        while (size < captureSize)
+            size *= 2;
+        return size;
+    }
+
+    /**
+     * Decodes a captured frame and collects its listeners under the lock, then calls them without it,
+     * so a slow listener does not hold up the other sessions or the subscriptions
+     */
+    private void onFrameCaptured(Session session, DataSource source, byte[] bytes, int samplingRate) {
+        //the frame and the listeners of a session are only touched by its capture thread outside of the lock
+        AudioFrame frame = session.mFrame;
+        ArrayList<OnFrameCaptureListener> listeners = session.mDispatchListeners;
+        synchronized (this) {
+            //decode once for all the listeners
+            if (samplingRate > 0)
+                frame.sampleRate = samplingRate / 1000;
+            if (source == DataSource.SPECTRUM)
+                frame.setFft(bytes);
+            else
+                frame.setWaveform(bytes);
+            session.measure(frame);
+
+            for (int i = 0; i < session.mSubscribers.size(); i++) {
+                Subscriber subscriber = session.mSubscribers.get(i);
+                if (subscriber.isActive && subscriber.mSource == source)
+                    listeners.add(subscriber.mListener);
+            }
+        }
+
+        for (int i = 0; i < listeners.size(); i++)
+            listeners.get(i).onFrameCaptured(source, frame);
+        listeners.clear();
+    }
+
+    private static class Subscriber {
+        private final OnFrameCaptureListener mListener;
+        private DataSource mSource;
+        private int mCaptureSize, mCaptureRate;
+        private boolean isActive, isMeasured;
+
+        private Subscriber(OnFrameCaptureListener listener) {
+            this.mListener = listener;
+        }
+    }
+
+    private class Session implements Visualizer.OnDataCaptureListener {
+
+        private final Visualizer mVisualizer;
+        private final AudioFrame mFrame = new AudioFrame();
+        private final ArrayList<Subscriber> mSubscribers = new ArrayList<>();
+        // listeners of the frame being delivered, reused by the capture thread
+        private final ArrayList<OnFrameCaptureListener> mDispatchListeners = new ArrayList<>();
+
+        private boolean isCaptureEnabled, isWaveformCaptured, isFftCaptured;
+
+        // peak and rms measured by the effect, while a listener needs them
+        private boolean isMeasuring;
+        private Visualizer.MeasurementPeakRms mMeasurement;
+        private int mCaptureSize, mCaptureRate;
+
+        private Session(int audioSessionId) {
+            mVisualizer = new Visualizer(audioSessionId);
+        }
+
+        private void subscribe(DataSource source, int captureSize, int captureRate, boolean active,
+                               OnFrameCaptureListener listener) {
+            Subscriber subscriber = find(listener);
+            if (subscriber == null) {
+                subscriber = new Subscriber(listener);
+                mSubscribers.add(subscriber);
+            }
+            subscriber.mSource = source;
+            subscriber.mCaptureSize = toSupportedCaptureSize(captureSize);
+            subscriber.mCaptureRate = captureRate > 0 ?
+                    Math.min(captureRate, Visualizer.getMaxCaptureRate()) : getDefaultCaptureRate();
+            subscriber.isActive = active;
+            updateCapture();
+        }
+
+        private void setActive(OnFrameCaptureListener listener, boolean active) {
+            Subscriber subscriber = find(listener);
+            if (subscriber == null || subscriber.isActive == active)
+                return;
+            subscriber.isActive = active;
+            updateCapture();
+        }
+
+        private void unsubscribe(OnFrameCaptureListener listener) {
+            Subscriber subscriber = find(listener);
+            if (subscriber != null)
+                mSubscribers.remove(subscriber);
+            updateCapture();
+            updateMeasurement();
+        }
+
+        private void setMeasured(OnFrameCaptureListener listener, boolean measured) {
+            Subscriber subscriber = find(listener);
+            if (subscriber == null || subscriber.isMeasured == measured)
+                return;
+            subscriber.isMeasured = measured;
+            updateMeasurement();
+        }
+
+        private void updateMeasurement() {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT)
+                return;
+
+            boolean measuring = false;
+            for (int i = 0; i < mSubscribers.size(); i++)
+                measuring |= mSubscribers.get(i).isMeasured;
+            if (measuring == isMeasuring)
+                return;
+
+            mVisualizer.setMeasurementMode(measuring ?
+                    Visualizer.MEASUREMENT_MODE_PEAK_RMS : Visualizer.MEASUREMENT_MODE_NONE);
+            if (mMeasurement == null)
+                mMeasurement = new Visualizer.MeasurementPeakRms();
+            isMeasuring = measuring;
+        }
+
+        /**
+         * Reads the levels measured by the effect into the frame, in millibels full scale
+         */
+        private void measure(AudioFrame frame) {
+            if (!isMeasuring || mVisualizer.getMeasurementPeakRms(mMeasurement) != Visualizer.SUCCESS)
+                return;
+
+            frame.measuredPeak = (float) Math.pow(10, mMeasurement.mPeak / 2000.0);
+            frame.measuredRms = (float) Math.pow(10, mMeasurement.mRms / 2000.0);
+            frame.hasMeasurement = true;
+        }
+
+        private Subscriber find(OnFrameCaptureListener listener) {
+            for (int i = 0; i < mSubscribers.size(); i++) {
+                if (mSubscribers.get(i).mListener == listener)
+                    return mSubscribers.get(i);
+            }
+            return null;
+        }
+
+        private boolean isEmpty() {
+            return mSubscribers.isEmpty();
+        }
+
+        /**
+         * Captures the union of the data needed by the active listeners, at their largest size and rate
+         */
+        private void updateCapture() {
+            boolean active = false, waveform = false, fft = false;
+            int captureSize = 0, captureRate = 0;
+            for (int i = 0; i < mSubscribers.size(); i++) {
+                Subscriber subscriber = mSubscribers.get(i);
+                if (!subscriber.isActive)
+                    continue;
+                active = true;
+                if (subscriber.mSource == DataSource.SPECTRUM)
+                    fft = true;
+                else
+                    waveform = true;
+                captureSize = Math.max(captureSize, subscriber.mCaptureSize);
+                captureRate = Math.max(captureRate, subscriber.mCaptureRate);
+            }
+
+            if (!active) {
+                //keep the effect, enabling it again is much cheaper than creating it
+                if (isCaptureEnabled) {
+                    mVisualizer.setEnabled(false);
+                    isCaptureEnabled = false;
+                }
+                return;
+            }
+
+            if (isCaptureEnabled && waveform == isWaveformCaptured && fft == isFftCaptured
+                    && captureSize == mCaptureSize && captureRate == mCaptureRate)
+                return;
+
+            //the capture size and listener can only be changed while the effect is disabled
+            mVisualizer.setEnabled(false);
+            if (captureSize != mCaptureSize)
+                mVisualizer.setCaptureSize(captureSize);
+            mVisualizer.setDataCaptureListener(this, captureRate, waveform, fft);
+            mVisualizer.setEnabled(true);
+
+            isCaptureEnabled = true;
+            isWaveformCaptured = waveform;
+            isFftCaptured = fft;
+            mCaptureSize = captureSize;
+            mCaptureRate = captureRate;
+        }
+
+        private void release() {
+            mVisualizer.release();
+        }
+
+        @Override
+        public void onWaveFormDataCapture(Visualizer visualizer, byte[] bytes, int samplingRate) {
+            AVTrace.beginSection(AVTrace.SECTION_CAPTURE);
+            AVTrace.setCounter(AVTrace.COUNTER_CAPTURE_BYTES, bytes.length);
+            onFrameCaptured(this, DataSource.WAVEFORM, bytes, samplingRate);
+            AVTrace.endSection();
+        }
+
+        @Override
+        public void onFftDataCapture(Visualizer visualizer, byte[] bytes, int samplingRate) {
+            AVTrace.beginSection(AVTrace.SECTION_CAPTURE);
+            AVTrace.setCounter(AVTrace.COUNTER_CAPTURE_BYTES, bytes.length);
+            onFrameCaptured(this, DataSource.SPECTRUM, bytes, samplingRate);
+            AVTrace.endSection();
+        }
+    }
+}
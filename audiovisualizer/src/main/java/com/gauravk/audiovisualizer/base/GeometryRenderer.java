@@ -0,0 +1,108 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.base;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.gauravk.audiovisualizer.engine.GeometryBuffer;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+
+/**
+ * Replays the geometry of a {@link GeometryBuffer} onto a {@link Canvas}
+ */
+public class GeometryRenderer {
+
+    private final Path mPath = new Path();
+
+    /**
+     * Draws the path, the lines, the points and the circles of the geometry, in this order
+     *
+     * @param canvas   to draw on
+     * @param geometry to be drawn
+     * @param paint    to draw with
+     */
+    public void draw(Canvas canvas, GeometryBuffer geometry, Paint paint) {
+        AVTrace.beginSection(AVTrace.SECTION_SUBMIT);
+        AVTrace.setCounter(AVTrace.COUNTER_PRIMITIVES, geometry.getPathOpCount()
+                + geometry.getLineCoordCount() / 4 + geometry.getPointCoordCount() / 2
+                + geometry.getCircleCoordCount() / 3);
+        drawPath(canvas, geometry, paint);
+        drawLines(canvas, geometry, paint);
+        drawPoints(canvas, geometry, paint);
+        drawCircles(canvas, geometry, paint);
+        AVTrace.endSection();
+    }
+
+    public void drawPath(Canvas canvas, GeometryBuffer geometry, Paint paint) {
+        int opCount = geometry.getPathOpCount();
+        if (opCount == 0)
+            return;
+
+        int[] ops = geometry.getPathOps();
+        float[] coords = geometry.getPathCoords();
+
+        mPath.rewind();
+        int c = 0;
+        for (int i = 0; i < opCount; i++) {
+            switch (ops[i]) {
+                case GeometryBuffer.OP_MOVE:
+                    mPath.moveTo(coords[c], coords[c + 1]);
+                    c += 2;
+                    break;
+                case GeometryBuffer.OP_LINE:
+                    mPath.lineTo(coords[c], coords[c + 1]);
+                    c += 2;
+                    break;
+                case GeometryBuffer.OP_CUBIC:
+                    mPath.cubicTo(coords[c], coords[c + 1], coords[c + 2],
+                            coords[c + 3], coords[c + 4], coords[c + 5]);
+                    c += 6;
+                    break;
+                default:
+                    mPath.close();
+                    break;
+            }
+        }
+        canvas.drawPath(mPath, paint);
+    }
+
+    /**
+     * Draws all the line segments in a single call
+     */
+    public void drawLines(Canvas canvas, GeometryBuffer geometry, Paint paint) {
+        int count = geometry.getLineCoordCount();
+        if (count > 0)
+            canvas.drawLines(geometry.getLines(), 0, count, paint);
+    }
+
+    /**
+     * Draws all the points in a single call, with the stroke width and cap of the paint
+     */
+    public void drawPoints(Canvas canvas, GeometryBuffer geometry, Paint paint) {
+        int count = geometry.getPointCoordCount();
+        if (count > 0)
+            canvas.drawPoints(geometry.getPoints(), 0, count, paint);
+    }
+
+    public void drawCircles(Canvas canvas, GeometryBuffer geometry, Paint paint) {
+        float[] circles = geometry.getCircles();
+        int count = geometry.getCircleCoordCount();
+        for (int i = 0; i < count; i += 3)
+            canvas.drawCircle(circles[i], circles[i + 1], circles[i + 2], paint);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.base;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.gauravk.audiovisualizer.utils.AVTrace;
+
+/**
+ * Traces into the system trace, so the sections show up in systrace and Perfetto captures.
+ * <p>
+ * Sections need API 18 and counters API 29, counters are dropped on older releases.
+ */
+class SystemTraceBackend implements AVTrace.Backend {
+
+    private final boolean isSectionSupported = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    private final boolean isCounterSupported = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+    @Override
+    public void beginSection(String name) {
+        if (isSectionSupported)
+            Trace.beginSection(name);
+    }
+
+    @Override
+    public void endSection() {
+        if (isSectionSupported)
+            Trace.endSection();
+    }
+
+    @Override
+    public void setCounter(String name, long value) {
+        if (isCounterSupported)
+            Trace.setCounter(name, value);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.PositionGravity;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+
+/**
+ * Engine of the bar visualizer, emits one line per bar so all the bars are drawn in a single call.
+ * The bars follow every captured frame through the smoothing of the magnitudes.
+ */
+public class BarEngine extends VisualizerEngine {
+
+    private static final int BAR_MAX_POINTS = 120;
+    private static final int BAR_MIN_POINTS = 3;
+
+    private int nPoints;
+
+    private float mBarWidth;
+    // centers of the bars, computed once per layout
+    private final float[] mBarX = new float[BAR_MAX_POINTS];
+    // the bars are shortened at the top by the radius of a round cap
+    private float mCapInset;
+
+    public BarEngine() {
+        super(BAR_MAX_POINTS);
+        mGeometry.ensureCapacity(BAR_MAX_POINTS, 0, 0, 0);
+        init();
+    }
+
+    @Override
+    protected void init() {
+        nPoints = (int) (BAR_MAX_POINTS * mDensity);
+        if (nPoints < BAR_MIN_POINTS)
+            nPoints = BAR_MIN_POINTS;
+
+        resetSmoother(nPoints);
+    }
+
+    @Override
+    public int getPoints() {
+        return nPoints;
+    }
+
+    /**
+     * Get the horizontal space of a bar, the bar itself and the gap to the next one
+     *
+     * @return width in pixels
+     */
+    public float getBarWidth() {
+        return mBarWidth;
+    }
+
+    /**
+     * Sets the length the bars are shortened by at the top, so that round caps do not
+     * overshoot the height of the bar
+     *
+     * @param capInset in pixels, half the stroke width for round caps
+     */
+    public void setCapInset(float capInset) {
+        this.mCapInset = capInset;
+    }
+
+    @Override
+    protected void onSizeChanged() {
+        mBarWidth = mWidth / nPoints;
+        for (int i = 0; i < nPoints; i++)
+            mBarX[i] = (i * mBarWidth) + (mBarWidth / 2);
+    }
+
+    @Override
+    public boolean update(AudioFrame frame, long frameTimeNanos) {
+        mGeometry.reset();
+        if (frame == null)
+            return false;
+
+        AVTrace.beginSection(AVTrace.SECTION_MAP_DATA);
+        AVTrace.setCounter(AVTrace.COUNTER_POINTS, nPoints);
+        boolean isMoving = smoothMagnitudes(frame, frameTimeNanos, nPoints);
+        AVTrace.endSection();
+
+        //calculate bar position
+        AVTrace.beginSection(AVTrace.SECTION_BUILD_GEOMETRY);
+        float[] magnitudes = mSmoother.getValues();
+        for (int i = 0; i < nPoints; i++) {
+            float barY = mPositionGravity == PositionGravity.TOP ?
+                    mHeight * magnitudes[i] : mHeight * (1 - magnitudes[i]);
+            if (mCapInset > 0)
+                barY = Math.min(barY + mCapInset, mHeight);
+            mGeometry.addLine(mBarX[i], mHeight, mBarX[i], barY);
+        }
+        AVTrace.endSection();
+
+        //keep animating until the bars reach the latest frame
+        return isMoving;
+    }
+}
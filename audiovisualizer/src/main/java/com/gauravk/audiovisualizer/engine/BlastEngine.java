@@ -0,0 +1,123 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.BandReduction;
+import com.gauravk.audiovisualizer.model.BandScale;
+import com.gauravk.audiovisualizer.model.DataSource;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+import com.gauravk.audiovisualizer.utils.UnitCircleTable;
+
+/**
+ * Engine of the blast visualizer, emits the spikes as a closed polygon
+ */
+public class BlastEngine extends VisualizerEngine {
+
+    private static final int BLAST_MAX_POINTS = 1000;
+    private static final int BLAST_MIN_POINTS = 3;
+
+    private int mRadius;
+    private int nPoints;
+    private final float[] mMagnitudes = new float[BLAST_MAX_POINTS];
+    private UnitCircleTable mCircleTable;
+
+    // the magnitudes are mapped once per captured frame, redraws of an onset kick only rescale them
+    private long mMappedCaptureNanos;
+    private boolean hasMappedFrame;
+
+    public BlastEngine() {
+        mGeometry.ensureCapacity(0, 0, 0, BLAST_MAX_POINTS + 1);
+        init();
+    }
+
+    @Override
+    protected void init() {
+        nPoints = (int) (BLAST_MAX_POINTS * mDensity);
+        if (nPoints < BLAST_MIN_POINTS)
+            nPoints = BLAST_MIN_POINTS;
+
+        mCircleTable = UnitCircleTable.get(nPoints);
+        hasMappedFrame = false;
+    }
+
+    @Override
+    public void setDataSource(DataSource dataSource) {
+        super.setDataSource(dataSource);
+        hasMappedFrame = false;
+    }
+
+    @Override
+    public void setBandReduction(BandReduction bandReduction) {
+        super.setBandReduction(bandReduction);
+        hasMappedFrame = false;
+    }
+
+    @Override
+    public void setBandScale(BandScale bandScale) {
+        super.setBandScale(bandScale);
+        hasMappedFrame = false;
+    }
+
+    @Override
+    public int getPoints() {
+        return nPoints;
+    }
+
+    @Override
+    protected void onSizeChanged() {
+        mRadius = mHeight < mWidth ? mHeight : mWidth;
+        mRadius = (int) (mRadius * 0.65 / 2);
+    }
+
+    @Override
+    public boolean update(AudioFrame frame, long frameTimeNanos) {
+        mGeometry.reset();
+        if (frame == null)
+            return false;
+
+        if (!hasMappedFrame || frame.captureTimeNanos != mMappedCaptureNanos) {
+            AVTrace.beginSection(AVTrace.SECTION_MAP_DATA);
+            AVTrace.setCounter(AVTrace.COUNTER_POINTS, nPoints);
+            computeMagnitudes(frame, mMagnitudes, nPoints);
+            AVTrace.endSection();
+            mMappedCaptureNanos = frame.captureTimeNanos;
+            hasMappedFrame = true;
+        }
+
+        AVTrace.beginSection(AVTrace.SECTION_BUILD_GEOMETRY);
+        float centerX = mWidth / 2;
+        float centerY = mHeight / 2;
+        float scale = getOnsetScale(frame, frameTimeNanos);
+        for (int i = 0; i < nPoints; i++) {
+            int t = (int) (mMagnitudes[i] * (mHeight / 4));
+
+            float posX = centerX + (mRadius + t) * scale * mCircleTable.cos(i);
+            float posY = centerY + (mRadius + t) * scale * mCircleTable.sin(i);
+
+            if (i == 0)
+                mGeometry.moveTo(posX, posY);
+            else
+                mGeometry.lineTo(posX, posY);
+
+        }
+        mGeometry.close();
+        AVTrace.endSection();
+
+        //keep animating while the onset kick decays
+        return scale > 1;
+    }
+}
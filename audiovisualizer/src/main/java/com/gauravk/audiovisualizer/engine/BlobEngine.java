@@ -0,0 +1,184 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AnimSpeed;
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+import com.gauravk.audiovisualizer.utils.BezierSpline;
+import com.gauravk.audiovisualizer.utils.UnitCircleTable;
+
+/**
+ * Engine of the blob visualizer, emits the blob as a closed path of cubic segments
+ */
+public class BlobEngine extends VisualizerEngine {
+
+    private static final int BLOB_MAX_POINTS = 60;
+    private static final int BLOB_MIN_POINTS = 3;
+
+    private int mRadius;
+
+    private int nPoints;
+
+    //the spline is closed so no extra points are needed
+    private final float[] mBezierX = new float[BLOB_MAX_POINTS];
+    private final float[] mBezierY = new float[BLOB_MAX_POINTS];
+    private final float[] mMagnitudes = new float[BLOB_MAX_POINTS];
+    private final BezierSpline mBezierSpline = new BezierSpline(BLOB_MAX_POINTS);
+
+    private UnitCircleTable mCircleTable;
+    private float mChangeFactor;
+
+    // the points step once per captured frame, whatever the number of redraws
+    private long mSteppedCaptureNanos;
+    private boolean isStepDue = true;
+
+    public BlobEngine() {
+        mGeometry.ensureCapacity(0, 0, 0, BLOB_MAX_POINTS + 2);
+        init();
+    }
+
+    @Override
+    protected void init() {
+        nPoints = (int) (mDensity * BLOB_MAX_POINTS);
+        if (nPoints < BLOB_MIN_POINTS)
+            nPoints = BLOB_MIN_POINTS;
+
+        mCircleTable = UnitCircleTable.get(nPoints);
+        isStepDue = true;
+    }
+
+    @Override
+    public int getPoints() {
+        return nPoints;
+    }
+
+    @Override
+    public void setAnimationSpeed(AnimSpeed animSpeed) {
+        super.setAnimationSpeed(animSpeed);
+        updateChangeFactor(mHeight > 0 ? mHeight : 1000);
+    }
+
+    private void updateChangeFactor(int height) {
+        if (mAnimSpeed == AnimSpeed.SLOW)
+            mChangeFactor = height * 0.003f;
+        else if (mAnimSpeed == AnimSpeed.MEDIUM)
+            mChangeFactor = height * 0.006f;
+        else
+            mChangeFactor = height * 0.01f;
+    }
+
+    @Override
+    protected void onSizeChanged() {
+        mRadius = mHeight < mWidth ? mHeight : mWidth;
+        mRadius = (int) (mRadius * 0.65 / 2);
+
+        updateChangeFactor(mHeight);
+
+        //initialize bezier points
+        float centerX = mWidth / 2;
+        float centerY = mHeight / 2;
+        for (int i = 0; i < nPoints; i++) {
+            mBezierX[i] = centerX + mRadius * mCircleTable.cos(i);
+            mBezierY[i] = centerY + mRadius * mCircleTable.sin(i);
+        }
+        isStepDue = true;
+    }
+
+    /**
+     * The points move by the change factor on each frame, up to a quarter of the height
+     */
+    @Override
+    public int getSettleFrames() {
+        return mChangeFactor > 0 ? (int) Math.ceil(mHeight / 4 / mChangeFactor) : 0;
+    }
+
+    @Override
+    public boolean update(AudioFrame frame, long frameTimeNanos) {
+        mGeometry.reset();
+        if (frame == null)
+            return false;
+
+        float centerX = mWidth / 2;
+        float centerY = mHeight / 2;
+        if (isStepDue || frame.captureTimeNanos != mSteppedCaptureNanos) {
+            stepPoints(frame, centerX, centerY);
+            mSteppedCaptureNanos = frame.captureTimeNanos;
+            isStepDue = false;
+        }
+        float[] firstX = mBezierSpline.getFirstControlPointsX();
+        float[] firstY = mBezierSpline.getFirstControlPointsY();
+        float[] secondX = mBezierSpline.getSecondControlPointsX();
+        float[] secondY = mBezierSpline.getSecondControlPointsY();
+
+        //create the path, the last segment joins back to the first point,
+        //an onset kick scales it around the center
+        AVTrace.beginSection(AVTrace.SECTION_BUILD_GEOMETRY);
+        float scale = getOnsetScale(frame, frameTimeNanos);
+        float offsetX = centerX * (1 - scale);
+        float offsetY = centerY * (1 - scale);
+        mGeometry.moveTo(offsetX + mBezierX[0] * scale, offsetY + mBezierY[0] * scale);
+        for (int i = 0; i < nPoints; i++) {
+            int next = i + 1 < nPoints ? i + 1 : 0;
+            mGeometry.cubicTo(offsetX + firstX[i] * scale, offsetY + firstY[i] * scale,
+                    offsetX + secondX[i] * scale, offsetY + secondY[i] * scale,
+                    offsetX + mBezierX[next] * scale, offsetY + mBezierY[next] * scale);
+        }
+        mGeometry.close();
+        AVTrace.endSection();
+
+        //keep animating while the onset kick decays
+        return scale > 1;
+    }
+
+    /**
+     * Moves the bezier points towards the magnitudes of a new frame and solves the control points
+     */
+    private void stepPoints(AudioFrame frame, float centerX, float centerY) {
+        //move the bezier points towards the destination
+        AVTrace.beginSection(AVTrace.SECTION_MAP_DATA);
+        AVTrace.setCounter(AVTrace.COUNTER_POINTS, nPoints);
+        computeMagnitudes(frame, mMagnitudes, nPoints);
+        for (int i = 0; i < nPoints; i++) {
+
+            int t = (int) (mMagnitudes[i] * (mHeight / 4));
+
+            float posX = centerX + (mRadius + t) * mCircleTable.cos(i);
+            float posY = centerY + (mRadius + t) * mCircleTable.sin(i);
+
+            //calculate the new x based on change
+            if (posX - mBezierX[i] > 0) {
+                mBezierX[i] += mChangeFactor;
+            } else {
+                mBezierX[i] -= mChangeFactor;
+            }
+
+            //calculate the new y based on change
+            if (posY - mBezierY[i] > 0) {
+                mBezierY[i] += mChangeFactor;
+            } else {
+                mBezierY[i] -= mChangeFactor;
+            }
+        }
+        AVTrace.endSection();
+
+        //update the control points of the closed curve
+        AVTrace.beginSection(AVTrace.SECTION_SPLINE);
+        AVTrace.setCounter(AVTrace.COUNTER_KNOTS, nPoints);
+        mBezierSpline.updateClosedCurveControlPoints(mBezierX, mBezierY, nPoints);
+        AVTrace.endSection();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.PaintStyle;
+import com.gauravk.audiovisualizer.model.VisualizerConfig;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+import com.gauravk.audiovisualizer.utils.UnitCircleTable;
+
+import java.util.Arrays;
+
+/**
+ * Engine of the circle line visualizer.
+ * <p>
+ * The dots of the ring, the translucent rays and the bars are emitted into separate buffers,
+ * as the rays are drawn with a gradient. The directions of the points are computed once per layout,
+ * and the ring does not depend on the audio so it is only built again when the layout changes.
+ * <p>
+ * With {@link PaintStyle#FILL} the dots are emitted as points and the bars as lines, to be drawn in
+ * one call each with round caps and a stroke width of {@link #getBarStrokeWidth()}. The round cap at
+ * the base of a bar is covered by the dot of the ring. The outline keeps the rectangles and circles.
+ */
+public class CircleLineEngine extends VisualizerEngine {
+
+    private static final int BAR_MAX_POINTS = 240;
+    private static final int BAR_MIN_POINTS = 30;
+    // the steps are at least one degree apart
+    private static final int MAX_STEPS = 360;
+
+    private final GeometryBuffer mDotGeometry = new GeometryBuffer();
+    private final GeometryBuffer mRayGeometry = new GeometryBuffer();
+
+    private int mPoints;
+    private int mPointRadius;
+    private final float[] mSrcY = new float[BAR_MAX_POINTS];
+    private final float[] mMagnitudes = new float[BAR_MAX_POINTS];
+    private int mRadius;
+    private boolean drawLine;
+
+    // the points are stepped in whole degrees, nSteps of them are drawn
+    private int nSteps;
+    private final int[] mStepPoint = new int[MAX_STEPS];
+    private final float[] mStepCos = new float[MAX_STEPS];
+    private final float[] mStepSin = new float[MAX_STEPS];
+
+    // ring position and the point radius turned along each step
+    private final float[] mRingX = new float[MAX_STEPS];
+    private final float[] mRingY = new float[MAX_STEPS];
+    private final float[] mNormalX = new float[MAX_STEPS];
+    private final float[] mNormalY = new float[MAX_STEPS];
+    private boolean isRingDirty;
+
+    public CircleLineEngine() {
+        mGeometry.ensureCapacity(MAX_STEPS, 0, MAX_STEPS, 5 * MAX_STEPS);
+        mDotGeometry.ensureCapacity(0, MAX_STEPS, MAX_STEPS, 0);
+        mRayGeometry.ensureCapacity(0, 0, 0, 4 * MAX_STEPS);
+        init();
+    }
+
+    @Override
+    protected void init() {
+        mPoints = (int) (BAR_MAX_POINTS * mDensity);
+        if (mPoints < BAR_MIN_POINTS)
+            mPoints = BAR_MIN_POINTS;
+        Arrays.fill(mSrcY, 0);
+
+        UnitCircleTable degreeTable = UnitCircleTable.get(360);
+        int step = 360 / mPoints;
+        nSteps = (360 + step - 1) / step;
+        for (int s = 0; s < nSteps; s++) {
+            int angle = s * step;
+            mStepPoint[s] = angle * mPoints / 360;
+            mStepCos[s] = degreeTable.cos(angle);
+            mStepSin[s] = degreeTable.sin(angle);
+        }
+
+        isRingDirty = true;
+    }
+
+    @Override
+    public int getPoints() {
+        return mPoints;
+    }
+
+    public boolean isDrawLine() {
+        return drawLine;
+    }
+
+    public void setDrawLine(boolean drawLine) {
+        this.drawLine = drawLine;
+    }
+
+    @Override
+    protected void applyConfig(VisualizerConfig config) {
+        if (config.isDrawLine() != drawLine)
+            setDrawLine(config.isDrawLine());
+    }
+
+    @Override
+    public void setPaintStyle(PaintStyle paintStyle) {
+        super.setPaintStyle(paintStyle);
+        isRingDirty = true;
+    }
+
+    /**
+     * @return radius of the ring of dots
+     */
+    public int getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * @return radius of a dot, half the width of a bar
+     */
+    public int getPointRadius() {
+        return mPointRadius;
+    }
+
+    /**
+     * @return true if the dots and the bars are emitted as points and lines
+     */
+    public boolean isStroked() {
+        return mPaintStyle == PaintStyle.FILL;
+    }
+
+    /**
+     * @return stroke width of the points and the lines, see {@link #isStroked()}
+     */
+    public float getBarStrokeWidth() {
+        return 2 * mPointRadius;
+    }
+
+    /**
+     * @return geometry of the ring of dots
+     */
+    public GeometryBuffer getDotGeometry() {
+        return mDotGeometry;
+    }
+
+    /**
+     * @return geometry of the translucent rays, empty unless {@link #setDrawLine(boolean)} is set
+     */
+    public GeometryBuffer getRayGeometry() {
+        return mRayGeometry;
+    }
+
+    @Override
+    protected void onSizeChanged() {
+        mRadius = Math.min(mWidth, mHeight) / 4;
+        mPointRadius = Math.abs((int) (2 * mRadius * Math.sin(Math.PI / mPoints / 3)));
+
+        float centerX = mWidth / 2;
+        float centerY = mHeight / 2;
+        for (int s = 0; s < nSteps; s++) {
+            mRingX[s] = centerX + mStepCos[s] * mRadius;
+            mRingY[s] = centerY - mStepSin[s] * mRadius;
+            mNormalX[s] = mStepSin[s] * mPointRadius;
+            mNormalY[s] = mStepCos[s] * mPointRadius;
+        }
+        isRingDirty = true;
+    }
+
+    @Override
+    public boolean update(AudioFrame frame, long frameTimeNanos) {
+        mGeometry.reset();
+        mRayGeometry.reset();
+
+        if (frame != null) {
+            AVTrace.beginSection(AVTrace.SECTION_MAP_DATA);
+            AVTrace.setCounter(AVTrace.COUNTER_POINTS, mPoints);
+            updateData(frame);
+            AVTrace.endSection();
+        }
+
+        AVTrace.beginSection(AVTrace.SECTION_BUILD_GEOMETRY);
+        if (isRingDirty)
+            buildRing();
+
+        boolean isStroked = isStroked();
+
+        // rays
+        if (drawLine) {
+            int lineLen = 14 * mPointRadius;//default len,
+            for (int s = 0; s < nSteps; s++) {
+                float offset = mSrcY[mStepPoint[s]];
+                float x = mRingX[s] + offset * mStepCos[s];
+                float y = mRingY[s] - offset * mStepSin[s];
+                mRayGeometry.moveTo(x + mNormalX[s], y + mNormalY[s]);
+                mRayGeometry.lineTo(x - mNormalX[s], y - mNormalY[s]);
+                mRayGeometry.lineTo(x + lineLen * mStepCos[s], y - lineLen * mStepSin[s]);
+                mRayGeometry.close();
+            }
+        }
+
+        // bars
+        for (int s = 0; s < nSteps; s++) {
+            float height = mSrcY[mStepPoint[s]];
+            if (height == 0) continue;
+            float endX = mRingX[s] + height * mStepCos[s];
+            float endY = mRingY[s] - height * mStepSin[s];
+            if (isStroked) {
+                mGeometry.addLine(mRingX[s], mRingY[s], endX, endY);
+                continue;
+            }
+            mGeometry.moveTo(mRingX[s] - mNormalX[s], mRingY[s] - mNormalY[s]);
+            mGeometry.lineTo(endX - mNormalX[s], endY - mNormalY[s]);
+            mGeometry.lineTo(endX + mNormalX[s], endY + mNormalY[s]);
+            mGeometry.lineTo(mRingX[s] + mNormalX[s], mRingY[s] + mNormalY[s]);
+            mGeometry.close();
+            mGeometry.addCircle(endX, endY, mPointRadius);
+        }
+        AVTrace.endSection();
+
+        return false;
+    }
+
+    /**
+     * The ring only depends on the layout and the paint style
+     */
+    private void buildRing() {
+        mDotGeometry.reset();
+        for (int s = 0; s < nSteps; s++) {
+            if (isStroked())
+                mDotGeometry.addPoint(mRingX[s], mRingY[s]);
+            else
+                mDotGeometry.addCircle(mRingX[s], mRingY[s], mPointRadius);
+        }
+        isRingDirty = false;
+    }
+
+    private void updateData(AudioFrame frame) {
+        computeMagnitudes(frame, mMagnitudes, mPoints);
+        for (int i = 0; i < mPoints; i++)
+            mSrcY[i] = mMagnitudes[i] * mRadius;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+/**
+ * Flat primitive geometry of a visualizer frame: line segments, points, circles and a path.
+ * <p>
+ * The buffers grow to the largest frame and are reused, so emitting geometry does not allocate
+ * in steady state. The path may hold several sub paths, each one starting with {@link #OP_MOVE}.
+ */
+public class GeometryBuffer {
+
+    public static final int OP_MOVE = 0;
+    public static final int OP_LINE = 1;
+    public static final int OP_CUBIC = 2;
+    public static final int OP_CLOSE = 3;
+
+    // x0, y0, x1, y1 of each line segment
+    private float[] mLines = new float[0];
+    private int nLineCoords;
+
+    // x, y of each point, drawn with the stroke width and cap of the paint
+    private float[] mPoints = new float[0];
+    private int nPointCoords;
+
+    // cx, cy, radius of each circle
+    private float[] mCircles = new float[0];
+    private int nCircleCoords;
+
+    // path operations and their coordinates
+    private int[] mPathOps = new int[0];
+    private int nPathOps;
+    private float[] mPathCoords = new float[0];
+    private int nPathCoords;
+
+    /**
+     * Clears the geometry, keeping the buffers
+     */
+    public void reset() {
+        nLineCoords = 0;
+        nPointCoords = 0;
+        nCircleCoords = 0;
+        nPathOps = 0;
+        nPathCoords = 0;
+    }
+
+    /**
+     * Makes room for the given number of primitives, to allocate the buffers up front
+     *
+     * @param lines   number of line segments
+     * @param points  number of points
+     * @param circles number of circles
+     * @param pathOps number of path operations, cubic ones included
+     */
+    public void ensureCapacity(int lines, int points, int circles, int pathOps) {
+        ensureLineCapacity(lines * 4);
+        ensurePointCapacity(points * 2);
+        ensureCircleCapacity(circles * 3);
+        ensurePathCapacity(pathOps, pathOps * 6);
+    }
+
+    public void addLine(float x0, float y0, float x1, float y1) {
+        ensureLineCapacity(nLineCoords + 4);
+        mLines[nLineCoords++] = x0;
+        mLines[nLineCoords++] = y0;
+        mLines[nLineCoords++] = x1;
+        mLines[nLineCoords++] = y1;
+    }
+
+    public void addPoint(float x, float y) {
+        ensurePointCapacity(nPointCoords + 2);
+        mPoints[nPointCoords++] = x;
+        mPoints[nPointCoords++] = y;
+    }
+
+    public void addCircle(float cx, float cy, float radius) {
+        ensureCircleCapacity(nCircleCoords + 3);
+        mCircles[nCircleCoords++] = cx;
+        mCircles[nCircleCoords++] = cy;
+        mCircles[nCircleCoords++] = radius;
+    }
+
+    public void moveTo(float x, float y) {
+        ensurePathCapacity(nPathOps + 1, nPathCoords + 2);
+        mPathOps[nPathOps++] = OP_MOVE;
+        mPathCoords[nPathCoords++] = x;
+        mPathCoords[nPathCoords++] = y;
+    }
+
+    public void lineTo(float x, float y) {
+        ensurePathCapacity(nPathOps + 1, nPathCoords + 2);
+        mPathOps[nPathOps++] = OP_LINE;
+        mPathCoords[nPathCoords++] = x;
+        mPathCoords[nPathCoords++] = y;
+    }
+
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        ensurePathCapacity(nPathOps + 1, nPathCoords + 6);
+        mPathOps[nPathOps++] = OP_CUBIC;
+        mPathCoords[nPathCoords++] = x1;
+        mPathCoords[nPathCoords++] = y1;
+        mPathCoords[nPathCoords++] = x2;
+        mPathCoords[nPathCoords++] = y2;
+        mPathCoords[nPathCoords++] = x3;
+        mPathCoords[nPathCoords++] = y3;
+    }
+
+    public void close() {
+        ensurePathCapacity(nPathOps + 1, nPathCoords);
+        mPathOps[nPathOps++] = OP_CLOSE;
+    }
+
+    public float[] getLines() {
+        return mLines;
+    }
+
+    /**
+     * @return number of line coordinates, four per segment
+     */
+    public int getLineCoordCount() {
+        return nLineCoords;
+    }
+
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * @return number of point coordinates, two per point
+     */
+    public int getPointCoordCount() {
+        return nPointCoords;
+    }
+
+    public float[] getCircles() {
+        return mCircles;
+    }
+
+    /**
+     * @return number of circle values, three per circle
+     */
+    public int getCircleCoordCount() {
+        return nCircleCoords;
+    }
+
+    public int[] getPathOps() {
+        return mPathOps;
+    }
+
+    public int getPathOpCount() {
+        return nPathOps;
+    }
+
+    public float[] getPathCoords() {
+        return mPathCoords;
+    }
+
+    public boolean isEmpty() {
+        return nLineCoords == 0 && nPointCoords == 0 && nCircleCoords == 0 && nPathOps == 0;
+    }
+
+    private void ensureLineCapacity(int size) {
+        if (size > mLines.length)
+            mLines = grow(mLines, size);
+    }
+
+    private void ensurePointCapacity(int size) {
+        if (size > mPoints.length)
+            mPoints = grow(mPoints, size);
+    }
+
+    private void ensureCircleCapacity(int size) {
+        if (size > mCircles.length)
+            mCircles = grow(mCircles, size);
+    }
+
+    private void ensurePathCapacity(int ops, int coords) {
+        if (ops > mPathOps.length) {
+            int[] pathOps = new int[Math.max(ops, mPathOps.length * 2)];
+            System.arraycopy(mPathOps, 0, pathOps, 0, nPathOps);
+            mPathOps = pathOps;
+        }
+        if (coords > mPathCoords.length)
+            mPathCoords = grow(mPathCoords, coords);
+    }
+
+    private static float[] grow(float[] array, int size) {
+        float[] grown = new float[Math.max(size, array.length * 2)];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
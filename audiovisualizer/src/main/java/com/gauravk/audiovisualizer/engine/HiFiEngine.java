@@ -0,0 +1,170 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+import com.gauravk.audiovisualizer.utils.UnitCircleTable;
+
+import java.util.Arrays;
+
+/**
+ * Engine of the hifi visualizer, emits the outward and the inward curves as two sub paths
+ * of one path and the spokes between them as lines, drawn in a single call.
+ * <p>
+ * The points are evenly spaced at {@code 360 / mPoints} degrees, the bezier control points sit
+ * half a step behind. Both curves and the spokes are built in a single pass over the points,
+ * from the ring positions cached per layout.
+ */
+public class HiFiEngine extends VisualizerEngine {
+
+    private static final int BAR_MAX_POINTS = 240;
+    private static final int BAR_MIN_POINTS = 30;
+    private static final float PER_RADIUS = .65f;
+
+    private int mRadius;
+    private int mPoints;
+    private final int[] mHeights = new int[BAR_MAX_POINTS];
+    private final float[] mMagnitudes = new float[BAR_MAX_POINTS];
+    /**
+     * This is the distance from center to bezier control point.
+     * We can calculate the bezier control points of each segment this distance and its angle;
+     */
+    private int mBezierControlPointLen;
+
+    // unit vectors of the points and of the control points, y pointing up
+    private final float[] mPointCos = new float[BAR_MAX_POINTS];
+    private final float[] mPointSin = new float[BAR_MAX_POINTS];
+    private final float[] mControlCos = new float[BAR_MAX_POINTS];
+    private final float[] mControlSin = new float[BAR_MAX_POINTS];
+
+    // positions of the points and the control points at zero height, cached per layout
+    private final float[] mPointX = new float[BAR_MAX_POINTS];
+    private final float[] mPointY = new float[BAR_MAX_POINTS];
+    private final float[] mControlX = new float[BAR_MAX_POINTS];
+    private final float[] mControlY = new float[BAR_MAX_POINTS];
+
+    // the inward curve is buffered while the outward one is emitted
+    private final float[] mInwardCoords = new float[6 * BAR_MAX_POINTS];
+
+    public HiFiEngine() {
+        mGeometry.ensureCapacity(BAR_MAX_POINTS, 0, 0, 2 * (BAR_MAX_POINTS + 1));
+        init();
+    }
+
+    @Override
+    protected void init() {
+        mPoints = (int) (BAR_MAX_POINTS * mDensity);
+        if (mPoints < BAR_MIN_POINTS) mPoints = BAR_MIN_POINTS;
+        Arrays.fill(mHeights, 0);
+
+        // the even entries are the points, the odd ones the control points half a step behind
+        UnitCircleTable halfStepTable = UnitCircleTable.get(2 * mPoints);
+        for (int i = 0; i < mPoints; i++) {
+            mPointCos[i] = halfStepTable.cos(2 * i);
+            mPointSin[i] = halfStepTable.sin(2 * i);
+            mControlCos[i] = halfStepTable.cos(2 * i - 1);
+            mControlSin[i] = halfStepTable.sin(2 * i - 1);
+        }
+    }
+
+    @Override
+    public int getPoints() {
+        return mPoints;
+    }
+
+    @Override
+    protected void onSizeChanged() {
+        mRadius = (int) (Math.min(mWidth, mHeight) / 2 * PER_RADIUS);
+        mBezierControlPointLen = (int) (mRadius / Math.cos(Math.PI / mPoints));
+
+        float centerX = mWidth / 2;
+        float centerY = mHeight / 2;
+        for (int i = 0; i < mPoints; i++) {
+            mPointX[i] = centerX + mPointCos[i] * mRadius;
+            mPointY[i] = centerY - mPointSin[i] * mRadius;
+            mControlX[i] = centerX + mControlCos[i] * mBezierControlPointLen;
+            mControlY[i] = centerY - mControlSin[i] * mBezierControlPointLen;
+        }
+    }
+
+    @Override
+    public boolean update(AudioFrame frame, long frameTimeNanos) {
+        mGeometry.reset();
+
+        if (frame != null) {
+            AVTrace.beginSection(AVTrace.SECTION_MAP_DATA);
+            AVTrace.setCounter(AVTrace.COUNTER_POINTS, mPoints);
+            updateData(frame);
+            AVTrace.endSection();
+        }
+
+        AVTrace.beginSection(AVTrace.SECTION_BUILD_GEOMETRY);
+        // start the outward path from the last point
+        int last = mPoints - 1;
+        mGeometry.moveTo(mPointX[last] + mPointCos[last] * mHeights[last],
+                mPointY[last] - mPointSin[last] * mHeights[last]);
+        int nInwardCoords = 0;
+        int lastHeight = mHeights[last];
+        for (int i = 0; i < mPoints; i++) {
+            int height = mHeights[i];
+            float cos = mPointCos[i];
+            float sin = mPointSin[i];
+            float cpCos = mControlCos[i];
+            float cpSin = mControlSin[i];
+            // outward
+            // the next point of path
+            float cx = mPointX[i] + cos * height;
+            float cy = mPointY[i] - sin * height;
+            //second bezier control point
+            float bx = mControlX[i] + cpCos * height;
+            float by = mControlY[i] - cpSin * height;
+            //fist bezier control point
+            float ax = mControlX[i] + cpCos * lastHeight;
+            float ay = mControlY[i] - cpSin * lastHeight;
+            mGeometry.cubicTo(ax, ay, bx, by, cx, cy);
+            // inward
+            float cx1 = mPointX[i] - cos * height;
+            float cy1 = mPointY[i] + sin * height;
+            mInwardCoords[nInwardCoords++] = mControlX[i] - cpCos * lastHeight;
+            mInwardCoords[nInwardCoords++] = mControlY[i] + cpSin * lastHeight;
+            mInwardCoords[nInwardCoords++] = mControlX[i] - cpCos * height;
+            mInwardCoords[nInwardCoords++] = mControlY[i] + cpSin * height;
+            mInwardCoords[nInwardCoords++] = cx1;
+            mInwardCoords[nInwardCoords++] = cy1;
+            // spoke
+            mGeometry.addLine(cx, cy, cx1, cy1);
+            lastHeight = height;
+        }
+        // start the inward path from the last point
+        mGeometry.moveTo(mPointX[last] - mPointCos[last] * mHeights[last],
+                mPointY[last] + mPointSin[last] * mHeights[last]);
+        for (int i = 0; i < nInwardCoords; i += 6) {
+            mGeometry.cubicTo(mInwardCoords[i], mInwardCoords[i + 1],
+                    mInwardCoords[i + 2], mInwardCoords[i + 3],
+                    mInwardCoords[i + 4], mInwardCoords[i + 5]);
+        }
+        AVTrace.endSection();
+
+        return false;
+    }
+
+    private void updateData(AudioFrame frame) {
+        computeMagnitudes(frame, mMagnitudes, mPoints);
+        for (int i = 0; i < mPoints; i++)
+            mHeights[i] = (int) (mMagnitudes[i] * mRadius);
+    }
+}
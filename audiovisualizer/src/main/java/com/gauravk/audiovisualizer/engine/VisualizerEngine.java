@@ -0,0 +1,363 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AnimSpeed;
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.BandReduction;
+import com.gauravk.audiovisualizer.model.BandScale;
+import com.gauravk.audiovisualizer.model.DataSource;
+import com.gauravk.audiovisualizer.model.PaintStyle;
+import com.gauravk.audiovisualizer.model.PositionGravity;
+import com.gauravk.audiovisualizer.model.VisualizerConfig;
+import com.gauravk.audiovisualizer.utils.AVConstants;
+import com.gauravk.audiovisualizer.utils.BandMapper;
+import com.gauravk.audiovisualizer.utils.BandReducer;
+import com.gauravk.audiovisualizer.utils.BandSmoother;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Framework free engine of a visualizer, turns a capture frame and the configuration into
+ * flat primitive geometry. The views only replay the {@link GeometryBuffer} onto a canvas,
+ * so the engines can be tested and benchmarked on a plain JVM.
+ * <p>
+ * The setters and {@link #update(AudioFrame, long)} must be called from the drawing thread, other threads
+ * hand a whole {@link VisualizerConfig} over with {@link #setConfig(VisualizerConfig)}. The buffers are
+ * sized for the highest density, so changing the density does not allocate.
+ */
+public abstract class VisualizerEngine {
+
+    protected final GeometryBuffer mGeometry = new GeometryBuffer();
+
+    protected int mWidth, mHeight;
+
+    protected float mDensity = AVConstants.DEFAULT_DENSITY;
+    protected PaintStyle mPaintStyle = PaintStyle.FILL;
+    protected PositionGravity mPositionGravity = PositionGravity.BOTTOM;
+    protected AnimSpeed mAnimSpeed = AnimSpeed.MEDIUM;
+    protected DataSource mDataSource = DataSource.WAVEFORM;
+    protected BandReduction mBandReduction = BandReduction.PEAK;
+    protected BandScale mBandScale = BandScale.LINEAR;
+
+    // sparse table of the spectrum bands of the last frame
+    private BandMapper mBandMapper;
+
+    private final AtomicReference<VisualizerConfig> mPendingConfig = new AtomicReference<>();
+    private VisualizerConfig mAppliedConfig = VisualizerConfig.DEFAULT;
+
+    // smoothing of the magnitudes, 0 time constants are derived from the animation speed
+    protected final BandSmoother mSmoother;
+    private long mAttackMillis, mReleaseMillis;
+    private long mSmoothedCaptureNanos;
+    private boolean hasSmoothedFrame;
+
+    // scale given to the visualization by an onset of full strength, 0 to ignore the onsets
+    private float mOnsetKick;
+
+    protected VisualizerEngine() {
+        this(0);
+    }
+
+    /**
+     * @param smoothedBands highest number of bands smoothed with {@link #smoothMagnitudes(AudioFrame, long, int)}
+     */
+    protected VisualizerEngine(int smoothedBands) {
+        mSmoother = new BandSmoother(smoothedBands);
+        updateSmoother();
+    }
+
+    /**
+     * Sets the configuration from any thread, it is applied as a whole by the next
+     * {@link #applyPendingConfig()} of the drawing thread
+     *
+     * @param config snapshot of the options
+     */
+    public void setConfig(VisualizerConfig config) {
+        mPendingConfig.set(config);
+    }
+
+    /**
+     * Applies the latest configuration set with {@link #setConfig(VisualizerConfig)}, called at the start
+     * of a frame before {@link #update(AudioFrame, long)}
+     *
+     * @return true if the number of points changed
+     */
+    public boolean applyPendingConfig() {
+        VisualizerConfig config = mPendingConfig.getAndSet(null);
+        if (config == null)
+            return false;
+
+        mAppliedConfig = config;
+        int points = getPoints();
+        if (config.getDensity() != mDensity)
+            setDensity(config.getDensity());
+        if (config.getPaintStyle() != mPaintStyle)
+            setPaintStyle(config.getPaintStyle());
+        if (config.getPositionGravity() != mPositionGravity)
+            setPositionGravity(config.getPositionGravity());
+        if (config.getAnimationSpeed() != mAnimSpeed)
+            setAnimationSpeed(config.getAnimationSpeed());
+        if (config.getDataSource() != mDataSource)
+            setDataSource(config.getDataSource());
+        if (config.getBandReduction() != mBandReduction)
+            setBandReduction(config.getBandReduction());
+        if (config.getBandScale() != mBandScale)
+            setBandScale(config.getBandScale());
+        if (config.getAttackMillis() != mAttackMillis || config.getReleaseMillis() != mReleaseMillis)
+            setSmoothing(config.getAttackMillis(), config.getReleaseMillis());
+        if (config.getOnsetKick() != mOnsetKick)
+            setOnsetKick(config.getOnsetKick());
+        applyConfig(config);
+        return getPoints() != points;
+    }
+
+    /**
+     * Get the configuration applied by the last {@link #applyPendingConfig()}, on the drawing thread
+     *
+     * @return snapshot of the options, {@link VisualizerConfig#DEFAULT} until one is applied
+     */
+    public VisualizerConfig getAppliedConfig() {
+        return mAppliedConfig;
+    }
+
+    /**
+     * Applies the options of a configuration which are specific to an engine, on the drawing thread
+     *
+     * @param config snapshot of the options
+     */
+    protected void applyConfig(VisualizerConfig config) {
+    }
+
+    /**
+     * Sets the density of the visualizer, the engine is initialized again in its existing buffers
+     *
+     * @param density density for visualization, clamped to [0, 1]
+     */
+    public void setDensity(float density) {
+        this.mDensity = Math.max(0, Math.min(density, 1));
+        init();
+        if (mWidth > 0 && mHeight > 0)
+            onSizeChanged();
+    }
+
+    public void setPaintStyle(PaintStyle paintStyle) {
+        this.mPaintStyle = paintStyle;
+    }
+
+    public void setPositionGravity(PositionGravity positionGravity) {
+        this.mPositionGravity = positionGravity;
+    }
+
+    public void setAnimationSpeed(AnimSpeed animSpeed) {
+        this.mAnimSpeed = animSpeed;
+        updateSmoother();
+    }
+
+    /**
+     * Sets the time constants of the smoothing of the magnitudes
+     *
+     * @param attackMillis  time constant of rising magnitudes, 0 to derive it from the animation speed
+     * @param releaseMillis time constant of falling magnitudes, 0 to derive it from the animation speed
+     */
+    public void setSmoothing(long attackMillis, long releaseMillis) {
+        this.mAttackMillis = attackMillis;
+        this.mReleaseMillis = releaseMillis;
+        updateSmoother();
+    }
+
+    /**
+     * The default time constants are halved for each step of speed
+     */
+    private void updateSmoother() {
+        float scale = 2f / (1 << mAnimSpeed.ordinal());
+        long attackMillis = mAttackMillis > 0 ? mAttackMillis : (long) (AVConstants.DEFAULT_ATTACK_MILLIS * scale);
+        long releaseMillis = mReleaseMillis > 0 ? mReleaseMillis : (long) (AVConstants.DEFAULT_RELEASE_MILLIS * scale);
+        mSmoother.setTimeConstants(attackMillis * 1000000L, releaseMillis * 1000000L);
+    }
+
+    public void setDataSource(DataSource dataSource) {
+        this.mDataSource = dataSource;
+    }
+
+    public void setBandReduction(BandReduction bandReduction) {
+        this.mBandReduction = bandReduction;
+    }
+
+    /**
+     * Sets the spacing of the spectrum bands of the points, see {@link BandMapper}
+     *
+     * @param bandScale linear, log, octave or mel bands
+     */
+    public void setBandScale(BandScale bandScale) {
+        this.mBandScale = bandScale;
+    }
+
+    /**
+     * Sets how much the engines which react to onsets scale the visualization on an onset,
+     * see {@link AudioFrame#onsetTimeNanos}
+     *
+     * @param kick scale added by an onset of full strength, 0 to ignore the onsets
+     */
+    public void setOnsetKick(float kick) {
+        this.mOnsetKick = kick;
+    }
+
+    public float getOnsetKick() {
+        return mOnsetKick;
+    }
+
+    /**
+     * Sets the size of the drawing area
+     *
+     * @param width  in pixels
+     * @param height in pixels
+     */
+    public void setSize(int width, int height) {
+        if (width == mWidth && height == mHeight)
+            return;
+
+        mWidth = width;
+        mHeight = height;
+        if (mWidth > 0 && mHeight > 0)
+            onSizeChanged();
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Get the geometry of the last updated frame
+     *
+     * @return geometry to be drawn
+     */
+    public GeometryBuffer getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * Get the number of points sampled from each frame
+     *
+     * @return number of points
+     */
+    public abstract int getPoints();
+
+    /**
+     * Get the number of unchanged frames the visualization needs to reach a frame it moves towards.
+     * Engines which animate on their own, see {@link #update(AudioFrame, long)}, need none.
+     *
+     * @return number of frames to be drawn before the visualization is idle
+     */
+    public int getSettleFrames() {
+        return 0;
+    }
+
+    /**
+     * Computes the geometry of a frame
+     *
+     * @param frame          latest captured frame, null if there is no data to visualize
+     * @param frameTimeNanos time of the display frame, in the {@link System#nanoTime()} time base
+     * @return true if the visualization is animating and needs another frame
+     */
+    public abstract boolean update(AudioFrame frame, long frameTimeNanos);
+
+    /**
+     * Computes the magnitude of each point from the current data source, the waveform is reduced
+     * to bands with the current {@link BandReduction} and the spectrum with the current {@link BandScale}
+     *
+     * @param frame      to read from
+     * @param magnitudes output buffer, each value is in range [0, 1]
+     * @param count      number of points
+     */
+    protected void computeMagnitudes(AudioFrame frame, float[] magnitudes, int count) {
+        if (mDataSource == DataSource.SPECTRUM && mBandScale != BandScale.LINEAR) {
+            BandMapper mapper = mBandMapper;
+            if (mapper == null || !mapper.matches(mBandScale, frame.fftBins, frame.sampleRate, count)) {
+                mapper = BandMapper.get(mBandScale, frame.fftBins, frame.sampleRate, count);
+                mBandMapper = mapper;
+            }
+            mapper.map(frame.fftMagnitudes, magnitudes);
+        } else if (mDataSource == DataSource.SPECTRUM) {
+            for (int i = 0; i < count; i++)
+                magnitudes[i] = frame.getSpectrumMagnitude(i, count);
+        } else {
+            BandReducer.reduce(mBandReduction, frame.amplitudes, frame.sampleCount, magnitudes, count);
+        }
+    }
+
+    /**
+     * Smooths the magnitudes of the points towards those of the latest frame, every captured frame
+     * updates the targets. The smoothed magnitudes are read from {@link BandSmoother#getValues()}.
+     *
+     * @param frame          latest captured frame
+     * @param frameTimeNanos time of the display frame
+     * @param count          number of points, as passed to {@link #resetSmoother(int)}
+     * @return true if the magnitudes are still moving
+     */
+    protected boolean smoothMagnitudes(AudioFrame frame, long frameTimeNanos, int count) {
+        if (!hasSmoothedFrame || frame.captureTimeNanos != mSmoothedCaptureNanos) {
+            computeMagnitudes(frame, mSmoother.getTargets(), count);
+            mSmoother.setTargetTime(frame.captureTimeNanos);
+            mSmoothedCaptureNanos = frame.captureTimeNanos;
+            hasSmoothedFrame = true;
+        }
+        return mSmoother.update(frameTimeNanos);
+    }
+
+    /**
+     * Get the scale given by the latest onset, the kick decays exponentially after the onset
+     *
+     * @param frame          latest captured frame
+     * @param frameTimeNanos time of the display frame
+     * @return scale of the visualization, 1 without a recent onset
+     */
+    protected float getOnsetScale(AudioFrame frame, long frameTimeNanos) {
+        if (mOnsetKick <= 0 || frame.onsetTimeNanos == 0)
+            return 1;
+
+        long elapsed = Math.max(frameTimeNanos - frame.onsetTimeNanos, 0);
+        if (elapsed > AVConstants.ONSET_KICK_DECAY_NANOS * 6)
+            return 1;
+        return 1 + mOnsetKick * frame.onsetStrength
+                * (float) Math.exp(-(double) elapsed / AVConstants.ONSET_KICK_DECAY_NANOS);
+    }
+
+    /**
+     * Starts the smoothing again from zero, when the number of points changes
+     *
+     * @param count number of points
+     */
+    protected void resetSmoother(int count) {
+        mSmoother.reset(count);
+        hasSmoothedFrame = false;
+    }
+
+    /**
+     * Initializes the engine for the current density, within the buffers allocated for the highest density
+     */
+    protected abstract void init();
+
+    /**
+     * Called when the size is known or changed, and after {@link #init()} if the size is known
+     */
+    protected void onSizeChanged() {
+    }
+}
@@ -0,0 +1,104 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.PaintStyle;
+import com.gauravk.audiovisualizer.model.PositionGravity;
+import com.gauravk.audiovisualizer.utils.AVTrace;
+
+/**
+ * Engine of the wave visualizer, emits the wave as a path of cubic segments.
+ * The points follow every captured frame through the smoothing of the magnitudes.
+ */
+public class WaveEngine extends VisualizerEngine {
+
+    private static final int WAVE_MAX_POINTS = 54;
+    private static final int WAVE_MIN_POINTS = 3;
+
+    private int nPoints;
+
+    private final float[] mBezierX = new float[WAVE_MAX_POINTS + 1];
+    private final float[] mBezierY = new float[WAVE_MAX_POINTS + 1];
+
+    private float mWidthOffset;
+
+    public WaveEngine() {
+        super(WAVE_MAX_POINTS + 1);
+        mGeometry.ensureCapacity(0, 0, 0, WAVE_MAX_POINTS + 5);
+        init();
+    }
+
+    @Override
+    protected void init() {
+        nPoints = (int) (WAVE_MAX_POINTS * mDensity);
+        if (nPoints < WAVE_MIN_POINTS)
+            nPoints = WAVE_MIN_POINTS;
+
+        resetSmoother(nPoints + 1);
+    }
+
+    @Override
+    public int getPoints() {
+        return nPoints + 1;
+    }
+
+    @Override
+    protected void onSizeChanged() {
+        mWidthOffset = mWidth / nPoints;
+        for (int i = 0; i <= nPoints; i++)
+            mBezierX[i] = i * mWidthOffset;
+    }
+
+    @Override
+    public boolean update(AudioFrame frame, long frameTimeNanos) {
+        mGeometry.reset();
+        if (frame == null)
+            return false;
+
+        AVTrace.beginSection(AVTrace.SECTION_MAP_DATA);
+        AVTrace.setCounter(AVTrace.COUNTER_POINTS, nPoints + 1);
+        boolean isMoving = smoothMagnitudes(frame, frameTimeNanos, nPoints + 1);
+        AVTrace.endSection();
+
+        AVTrace.beginSection(AVTrace.SECTION_BUILD_GEOMETRY);
+        float[] magnitudes = mSmoother.getValues();
+        for (int i = 0; i <= nPoints; i++) {
+            mBezierY[i] = mPositionGravity == PositionGravity.TOP ?
+                    mHeight * magnitudes[i] : mHeight * (1 - magnitudes[i]);
+        }
+
+        //create the path, the control points sit halfway between the points
+        mGeometry.moveTo(mBezierX[0], mBezierY[0]);
+        for (int i = 1; i <= nPoints; i++) {
+            float controlX = (mBezierX[i] + mBezierX[i - 1]) / 2;
+            mGeometry.cubicTo(controlX, mBezierY[i - 1],
+                    controlX, mBezierY[i],
+                    mBezierX[i], mBezierY[i]);
+        }
+
+        //add last 2 lines to close the view
+        if (mPaintStyle == PaintStyle.FILL) {
+            mGeometry.lineTo(mWidth, mHeight);
+            mGeometry.lineTo(0, mHeight);
+            mGeometry.close();
+        }
+        AVTrace.endSection();
+
+        //keep animating until the wave reaches the latest frame
+        return isMoving;
+    }
+}
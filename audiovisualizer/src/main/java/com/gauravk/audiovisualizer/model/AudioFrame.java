@@ -0,0 +1,192 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.model;
+
+import com.gauravk.audiovisualizer.utils.AVConstants;
+import com.gauravk.audiovisualizer.utils.RealFft;
+import com.gauravk.audiovisualizer.utils.SpectrumUtils;
+
+/**
+ * A frame of captured audio data, the buffers are reused across frames
+ */
+public class AudioFrame {
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    /**
+     * Raw waveform bytes, its length is the capture size
+     */
+    public byte[] waveform = EMPTY_BYTES;
+
+    /**
+     * Waveform decoded once per frame, normalized in range [-1, 1), valid up to {@link #sampleCount}
+     */
+    public float[] amplitudes;
+    public int sampleCount;
+
+    /**
+     * Normalized fft magnitudes, valid up to {@link #fftBins}
+     */
+    public float[] fftMagnitudes;
+    public int fftBins;
+
+    /**
+     * Sample rate of the audio in Hz, the spectrum bins span up to half of it
+     */
+    public int sampleRate = AVConstants.DEFAULT_SAMPLE_RATE;
+
+    /**
+     * Time the frame was captured at and the measured time since the previous one,
+     * in the {@link System#nanoTime()} time base
+     */
+    public long captureTimeNanos;
+    public long captureIntervalNanos;
+
+    /**
+     * Linear peak and rms measured by the audio effect on the played audio, valid if {@link #hasMeasurement}
+     */
+    public float measuredPeak, measuredRms;
+    public boolean hasMeasurement;
+
+    /**
+     * Capture time of the latest onset up to this frame and its strength in range (0, 1],
+     * 0 if no onset was detected
+     */
+    public long onsetTimeNanos;
+    public float onsetStrength;
+
+    /**
+     * Copies the waveform bytes into this frame and decodes them into the amplitudes
+     *
+     * @param bytes captured waveform, unsigned 8-bit samples centered on 128
+     */
+    public void setWaveform(byte[] bytes) {
+        hasMeasurement = false;
+        if (bytes == null) {
+            waveform = EMPTY_BYTES;
+            sampleCount = 0;
+            return;
+        }
+
+        if (waveform.length != bytes.length)
+            waveform = new byte[bytes.length];
+        System.arraycopy(bytes, 0, waveform, 0, bytes.length);
+
+        ensureAmplitudeCapacity(bytes.length);
+        for (int i = 0; i < bytes.length; i++)
+            amplitudes[i] = ((bytes[i] & 0xFF) - 128) / 128f;
+        sampleCount = bytes.length;
+    }
+
+    private void ensureAmplitudeCapacity(int size) {
+        if (amplitudes == null || amplitudes.length < size)
+            amplitudes = new float[size];
+    }
+
+    /**
+     * Converts the fft bytes into the magnitudes of this frame, the frame then holds no waveform
+     *
+     * @param bytes captured fft
+     */
+    public void setFft(byte[] bytes) {
+        hasMeasurement = false;
+        sampleCount = 0;
+        if (bytes == null || bytes.length < 2) {
+            fftBins = 0;
+            return;
+        }
+
+        int bins = SpectrumUtils.getBinCount(bytes.length);
+        if (fftMagnitudes == null || fftMagnitudes.length < bins)
+            fftMagnitudes = new float[bins];
+
+        fftBins = SpectrumUtils.computeMagnitudes(bytes, fftMagnitudes);
+    }
+
+    /**
+     * Computes the magnitudes of this frame from its waveform, for audio which is not captured as fft
+     *
+     * @param fft transform of the latest samples
+     */
+    public void computeFft(RealFft fft) {
+        if (sampleCount == 0) {
+            fftBins = 0;
+            return;
+        }
+
+        int bins = SpectrumUtils.getBinCount(fft.getSize());
+        if (fftMagnitudes == null || fftMagnitudes.length < bins)
+            fftMagnitudes = new float[bins];
+
+        fftBins = fft.computeMagnitudes(amplitudes, sampleCount, fftMagnitudes);
+    }
+
+    /**
+     * Checks if the frame holds data of the given source
+     *
+     * @param source of the data
+     * @return true if data is available
+     */
+    public boolean hasData(DataSource source) {
+        if (source == DataSource.SPECTRUM)
+            return fftMagnitudes != null && fftBins > 0;
+        return sampleCount > 0;
+    }
+
+    /**
+     * Get the spectrum magnitude of a point, see {@link SpectrumUtils#getPeakMagnitude(float[], int, int, int)}
+     *
+     * @param point  index of the point
+     * @param points total number of points
+     * @return magnitude in range [0, 1]
+     */
+    public float getSpectrumMagnitude(int point, int points) {
+        return SpectrumUtils.getPeakMagnitude(fftMagnitudes, fftBins, point, points);
+    }
+
+    /**
+     * Copies the data of the given source from another frame
+     *
+     * @param source data to be copied
+     * @param frame  to copy from
+     */
+    public void copyFrom(DataSource source, AudioFrame frame) {
+        sampleRate = frame.sampleRate;
+        hasMeasurement = frame.hasMeasurement;
+        measuredPeak = frame.measuredPeak;
+        measuredRms = frame.measuredRms;
+
+        if (source == DataSource.WAVEFORM) {
+            if (waveform.length != frame.waveform.length)
+                waveform = new byte[frame.waveform.length];
+            System.arraycopy(frame.waveform, 0, waveform, 0, waveform.length);
+
+            sampleCount = frame.sampleCount;
+            if (sampleCount > 0) {
+                ensureAmplitudeCapacity(sampleCount);
+                System.arraycopy(frame.amplitudes, 0, amplitudes, 0, sampleCount);
+            }
+            return;
+        }
+
+        fftBins = frame.fftBins;
+        if (fftBins == 0)
+            return;
+        if (fftMagnitudes == null || fftMagnitudes.length < fftBins)
+            fftMagnitudes = new float[fftBins];
+        System.arraycopy(frame.fftMagnitudes, 0, fftMagnitudes, 0, fftBins);
+    }
+}
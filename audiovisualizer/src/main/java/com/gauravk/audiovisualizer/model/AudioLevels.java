@@ -0,0 +1,67 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.model;
+
+/**
+ * Levels of the audio of a visualizer, as linear amplitudes in range [0, 1]: the peak and the rms of
+ * the latest frame, their short-term values over a sliding window and a peak which is held then decays.
+ * <p>
+ * The short-term rms is the loudness of the meter, unweighted.
+ */
+public class AudioLevels {
+
+    private float mPeak, mRms;
+    private float mShortTermPeak, mShortTermRms;
+    private float mPeakHold;
+
+    public void set(float peak, float rms, float shortTermPeak, float shortTermRms, float peakHold) {
+        this.mPeak = peak;
+        this.mRms = rms;
+        this.mShortTermPeak = shortTermPeak;
+        this.mShortTermRms = shortTermRms;
+        this.mPeakHold = peakHold;
+    }
+
+    public float getPeak() {
+        return mPeak;
+    }
+
+    public float getRms() {
+        return mRms;
+    }
+
+    public float getShortTermPeak() {
+        return mShortTermPeak;
+    }
+
+    public float getShortTermRms() {
+        return mShortTermRms;
+    }
+
+    public float getPeakHold() {
+        return mPeakHold;
+    }
+
+    /**
+     * Converts a level to decibels relative to full scale
+     *
+     * @param level linear amplitude
+     * @return level in dBFS, negative infinity for silence
+     */
+    public static float toDecibels(float level) {
+        return (float) (20 * Math.log10(level));
+    }
+}
@@ -0,0 +1,25 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.model;
+
+/**
+ * Aggregation of the samples which fall into a band, see {@link com.gauravk.audiovisualizer.utils.BandReducer}
+ */
+public enum BandReduction {
+    PEAK,
+    MEAN_ABS,
+    RMS
+}
@@ -0,0 +1,122 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.model;
+
+import com.gauravk.audiovisualizer.utils.DurationHistogram;
+
+/**
+ * Frame statistics of a visualizer: draw durations, capture to draw latencies,
+ * capture frames which were replaced before being drawn and frames drawn over the frame budget.
+ * <p>
+ * Recording does not allocate, the statistics are read through a copy.
+ */
+public class FrameStats {
+
+    private final DurationHistogram mDrawTime = new DurationHistogram();
+    private final DurationHistogram mLatency = new DurationHistogram();
+
+    private long nCapturedFrames;
+    private long nDrawnCaptureFrames;
+    private long nOverBudgetFrames;
+
+    /**
+     * Records a drawn frame
+     *
+     * @param drawNanos    time spent drawing
+     * @param budgetNanos  time of a display frame
+     */
+    public void recordDraw(long drawNanos, long budgetNanos) {
+        mDrawTime.record(drawNanos);
+        if (drawNanos > budgetNanos)
+            nOverBudgetFrames++;
+    }
+
+    /**
+     * Records a capture frame which was drawn for the first time
+     *
+     * @param latencyNanos time from the capture callback to the end of the draw
+     */
+    public void recordCaptureDrawn(long latencyNanos) {
+        mLatency.record(latencyNanos);
+        nDrawnCaptureFrames++;
+    }
+
+    /**
+     * Records the capture frames received since the last draw
+     *
+     * @param count number of capture frames
+     */
+    public void recordCaptured(long count) {
+        nCapturedFrames += count;
+    }
+
+    public void reset() {
+        mDrawTime.reset();
+        mLatency.reset();
+        nCapturedFrames = 0;
+        nDrawnCaptureFrames = 0;
+        nOverBudgetFrames = 0;
+    }
+
+    /**
+     * Copies the statistics into another instance
+     *
+     * @param stats to copy into
+     */
+    public void copyTo(FrameStats stats) {
+        mDrawTime.copyTo(stats.mDrawTime);
+        mLatency.copyTo(stats.mLatency);
+        stats.nCapturedFrames = nCapturedFrames;
+        stats.nDrawnCaptureFrames = nDrawnCaptureFrames;
+        stats.nOverBudgetFrames = nOverBudgetFrames;
+    }
+
+    /**
+     * @return histogram of the draw durations
+     */
+    public DurationHistogram getDrawTime() {
+        return mDrawTime;
+    }
+
+    /**
+     * @return histogram of the times from the capture callback to the end of the first draw of the frame
+     */
+    public DurationHistogram getCaptureLatency() {
+        return mLatency;
+    }
+
+    public long getDrawnFrames() {
+        return mDrawTime.getCount();
+    }
+
+    public long getCapturedFrames() {
+        return nCapturedFrames;
+    }
+
+    /**
+     * @return capture frames which were replaced by a newer one before being drawn
+     */
+    public long getSkippedCaptureFrames() {
+        return Math.max(nCapturedFrames - nDrawnCaptureFrames, 0);
+    }
+
+    /**
+     * @return frames which took longer to draw than a display frame
+     */
+    public long getOverBudgetFrames() {
+        return nOverBudgetFrames;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.model;
+
+import com.gauravk.audiovisualizer.utils.AVConstants;
+
+/**
+ * Immutable snapshot of the options shared by all the visualizers.
+ * <p>
+ * A snapshot can be handed to the drawing thread as a whole, so a frame never sees half of a change.
+ * The paint options are part of it, the paints are only changed on the drawing thread.
+ * The density is clamped to [0, 1], which bounds the buffers of the engines.
+ */
+public final class VisualizerConfig {
+
+    public static final VisualizerConfig DEFAULT = new VisualizerConfig(AVConstants.DEFAULT_DENSITY,
+            PaintStyle.FILL, PositionGravity.BOTTOM, AnimSpeed.MEDIUM, DataSource.WAVEFORM, BandReduction.PEAK,
+            BandScale.LINEAR, 0, 0, false, 0, AVConstants.DEFAULT_COLOR, AVConstants.DEFAULT_STROKE_WIDTH,
+            -1, false);
+
+    private final float mDensity;
+    private final PaintStyle mPaintStyle;
+    private final PositionGravity mPositionGravity;
+    private final AnimSpeed mAnimSpeed;
+    private final DataSource mDataSource;
+    private final BandReduction mBandReduction;
+    private final BandScale mBandScale;
+    private final long mAttackMillis, mReleaseMillis;
+    private final boolean isDrawLine;
+    private final float mOnsetKick;
+    private final int mColor;
+    private final float mStrokeWidth;
+    private final float mBarGap;
+    private final boolean isRoundCap;
+
+    private VisualizerConfig(float density, PaintStyle paintStyle, PositionGravity positionGravity,
+                             AnimSpeed animSpeed, DataSource dataSource, BandReduction bandReduction,
+                             BandScale bandScale, long attackMillis, long releaseMillis, boolean drawLine,
+                             float onsetKick, int color, float strokeWidth, float barGap, boolean roundCap) {
+        this.mDensity = Math.max(0, Math.min(density, 1));
+        this.mPaintStyle = paintStyle;
+        this.mPositionGravity = positionGravity;
+        this.mAnimSpeed = animSpeed;
+        this.mDataSource = dataSource;
+        this.mBandReduction = bandReduction;
+        this.mBandScale = bandScale;
+        this.mAttackMillis = Math.max(0, attackMillis);
+        this.mReleaseMillis = Math.max(0, releaseMillis);
+        this.isDrawLine = drawLine;
+        this.mOnsetKick = Math.max(0, onsetKick);
+        this.mColor = color;
+        this.mStrokeWidth = strokeWidth;
+        this.mBarGap = barGap;
+        this.isRoundCap = roundCap;
+    }
+
+    public float getDensity() {
+        return mDensity;
+    }
+
+    public PaintStyle getPaintStyle() {
+        return mPaintStyle;
+    }
+
+    public PositionGravity getPositionGravity() {
+        return mPositionGravity;
+    }
+
+    public AnimSpeed getAnimationSpeed() {
+        return mAnimSpeed;
+    }
+
+    public DataSource getDataSource() {
+        return mDataSource;
+    }
+
+    public BandReduction getBandReduction() {
+        return mBandReduction;
+    }
+
+    public BandScale getBandScale() {
+        return mBandScale;
+    }
+
+    /**
+     * @return attack time constant of the smoothing, 0 if derived from the animation speed
+     */
+    public long getAttackMillis() {
+        return mAttackMillis;
+    }
+
+    /**
+     * @return release time constant of the smoothing, 0 if derived from the animation speed
+     */
+    public long getReleaseMillis() {
+        return mReleaseMillis;
+    }
+
+    /**
+     * @return true if the circle line visualizer draws its rays
+     */
+    public boolean isDrawLine() {
+        return isDrawLine;
+    }
+
+    /**
+     * @return scale added by an onset of full strength, 0 if the onsets are ignored
+     */
+    public float getOnsetKick() {
+        return mOnsetKick;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    /**
+     * @return gap between the bars of the bar visualizer, negative if the bars are drawn with the stroke width
+     */
+    public float getBarGap() {
+        return mBarGap;
+    }
+
+    /**
+     * @return true if the bar visualizer rounds the top of its bars
+     */
+    public boolean isRoundCap() {
+        return isRoundCap;
+    }
+
+    public VisualizerConfig withDensity(float density) {
+        return new VisualizerConfig(density, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withPaintStyle(PaintStyle paintStyle) {
+        return new VisualizerConfig(mDensity, paintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withPositionGravity(PositionGravity positionGravity) {
+        return new VisualizerConfig(mDensity, mPaintStyle, positionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withAnimationSpeed(AnimSpeed animSpeed) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, animSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withDataSource(DataSource dataSource) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, dataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withBandReduction(BandReduction bandReduction) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, bandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withBandScale(BandScale bandScale) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                bandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withSmoothing(long attackMillis, long releaseMillis) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, attackMillis, releaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withDrawLine(boolean drawLine) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, drawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withOnsetKick(float onsetKick) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, onsetKick, mColor, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withColor(int color) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, color, mStrokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withStrokeWidth(float strokeWidth) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, strokeWidth,
+                mBarGap, isRoundCap);
+    }
+
+    public VisualizerConfig withBarGap(float barGap) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                barGap, isRoundCap);
+    }
+
+    public VisualizerConfig withRoundCap(boolean roundCap) {
+        return new VisualizerConfig(mDensity, mPaintStyle, mPositionGravity, mAnimSpeed, mDataSource, mBandReduction,
+                mBandScale, mAttackMillis, mReleaseMillis, isDrawLine, mOnsetKick, mColor, mStrokeWidth,
+                mBarGap, roundCap);
+    }
+}
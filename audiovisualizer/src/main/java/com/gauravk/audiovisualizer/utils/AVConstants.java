@@ -15,11 +15,37 @@
 */
 package com.gauravk.audiovisualizer.utils;
 
-import android.graphics.Color;
-
 public class AVConstants {
+    /**
+     * @deprecated bar and wave smooth their magnitudes with time constants, see
+     * {@link com.gauravk.audiovisualizer.base.BaseVisualizer#setSmoothing(long, long)}
+     */
+    @Deprecated
+    public static final int MAX_ANIM_BATCH_COUNT = 4;
     public static final float DEFAULT_DENSITY = 0.25f;
-    public static final int DEFAULT_COLOR = Color.BLACK;
+    public static final int DEFAULT_COLOR = 0xFF000000;
     public static final float DEFAULT_STROKE_WIDTH = 6.0f;
-    public static final int MAX_ANIM_BATCH_COUNT = 4;
+    public static final long DEFAULT_CAPTURE_INTERVAL_NANOS = 100000000L;
+    public static final long MIN_CAPTURE_INTERVAL_NANOS = 1000000L;
+    public static final long MAX_CAPTURE_INTERVAL_NANOS = 1000000000L;
+    public static final int CAPTURE_SAMPLES_PER_POINT = 4;
+    public static final int MIN_CAPTURE_RATE = 4000;
+    public static final int CAPTURE_RATE_EVALUATION_FRAMES = 120;
+    public static final float DEFAULT_REFRESH_RATE = 60.0f;
+    public static final float DEFAULT_SILENCE_THRESHOLD = 2 / 128f;
+    public static final float DEFAULT_CHANGE_THRESHOLD = 2 / 128f;
+    public static final float SMOOTHING_EPSILON = 1 / 512f;
+    public static final long DEFAULT_ATTACK_MILLIS = 40;
+    public static final long DEFAULT_RELEASE_MILLIS = 150;
+    public static final long DEFAULT_LEVEL_WINDOW_NANOS = 400000000L;
+    public static final long DEFAULT_PEAK_HOLD_NANOS = 1000000000L;
+    public static final float DEFAULT_PEAK_HOLD_DECAY = 0.5f;
+    public static final float DEFAULT_ONSET_SENSITIVITY = 1.5f;
+    public static final long DEFAULT_ONSET_MIN_INTERVAL_NANOS = 100000000L;
+    public static final float MIN_ONSET_FLUX = 0.01f;
+    public static final long ONSET_KICK_DECAY_NANOS = 60000000L;
+    public static final int MIN_FFT_SIZE = 256;
+    public static final int MAX_FFT_SIZE = 4096;
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+    public static final float MIN_BAND_FREQUENCY = 40.0f;
 }
@@ -0,0 +1,84 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+/**
+ * Trace sections and counters around the stages of the visualizer pipeline.
+ * <p>
+ * Nothing is traced until a {@link Backend} is set, a disabled section costs a single static field read.
+ * The backend should be set before the visualizers start, so the sections stay balanced.
+ */
+public final class AVTrace {
+
+    public static final String SECTION_CAPTURE = "AV:capture";
+    public static final String SECTION_MAP_DATA = "AV:mapData";
+    public static final String SECTION_SPLINE = "AV:splineSolve";
+    public static final String SECTION_BUILD_GEOMETRY = "AV:buildGeometry";
+    public static final String SECTION_SUBMIT = "AV:submit";
+
+    public static final String COUNTER_CAPTURE_BYTES = "AV:captureBytes";
+    public static final String COUNTER_POINTS = "AV:points";
+    public static final String COUNTER_KNOTS = "AV:knots";
+    public static final String COUNTER_PRIMITIVES = "AV:primitives";
+
+    /**
+     * Receives the trace events, such as the system trace
+     */
+    public interface Backend {
+        void beginSection(String name);
+
+        void endSection();
+
+        void setCounter(String name, long value);
+    }
+
+    // set from any thread, read on the capture and drawing threads
+    private static volatile Backend sBackend;
+
+    private AVTrace() {
+    }
+
+    /**
+     * Sets the backend which receives the trace events
+     *
+     * @param backend to trace into, null to disable tracing
+     */
+    public static void setBackend(Backend backend) {
+        sBackend = backend;
+    }
+
+    public static boolean isEnabled() {
+        return sBackend != null;
+    }
+
+    public static void beginSection(String name) {
+        Backend backend = sBackend;
+        if (backend != null)
+            backend.beginSection(name);
+    }
+
+    public static void endSection() {
+        Backend backend = sBackend;
+        if (backend != null)
+            backend.endSection();
+    }
+
+    public static void setCounter(String name, long value) {
+        Backend backend = sBackend;
+        if (backend != null)
+            backend.setCounter(name, value);
+    }
+}
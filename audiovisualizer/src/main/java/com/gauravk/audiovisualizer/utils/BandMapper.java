@@ -0,0 +1,248 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.BandScale;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable sparse table of the weights which aggregate the spectrum bins into log-spaced, octave
+ * or mel bands, from {@link AVConstants#MIN_BAND_FREQUENCY} up to the Nyquist frequency.
+ * <p>
+ * Each band is the weighted mean of the bins it covers, log and octave bands weight a bin by its overlap
+ * with the band and mel bands by a triangular filter. A band narrower than a bin reads the nearest one.
+ * The most recently used tables are cached by scale, bin count, sample rate and band count, so mapping
+ * a frame is a single pass over the non-zero weights.
+ */
+public final class BandMapper {
+
+    private static final int MAX_BINS = 1 << 13;
+    private static final int MAX_BANDS = 1 << 12;
+    private static final int MAX_CACHED_MAPPERS = 16;
+
+    // least recently used tables are dropped, every size or scale change of a view creates a new one
+    private static final Map<Long, BandMapper> sMappers = new LinkedHashMap<Long, BandMapper>(MAX_CACHED_MAPPERS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BandMapper> eldest) {
+            return size() > MAX_CACHED_MAPPERS;
+        }
+    };
+
+    private final BandScale mScale;
+    private final int nBins, mSampleRate, nBands;
+
+    // weights of band b are in [mOffsets[b], mOffsets[b + 1]) of the bin and weight arrays
+    private final int[] mOffsets;
+    private final int[] mBinIndices;
+    private final float[] mWeights;
+
+    private BandMapper(BandScale scale, int bins, int sampleRate, int bands) {
+        this.mScale = scale;
+        this.nBins = bins;
+        this.mSampleRate = sampleRate;
+        this.nBands = bands;
+
+        float binWidth = sampleRate / 2f / (bins - 1);
+        float maxFrequency = sampleRate / 2f;
+        float minFrequency = Math.min(AVConstants.MIN_BAND_FREQUENCY, maxFrequency / 2);
+        float[] edges = getEdges(scale, bands, minFrequency, maxFrequency);
+
+        // the weights of a band are dense over its bins, only the dc bin is skipped
+        float[] bandWeights = new float[bins];
+        int[] bandIndices = new int[bins];
+        int[] indices = new int[bins];
+        float[] weights = new float[bins];
+        mOffsets = new int[bands + 1];
+        int total = 0;
+        for (int b = 0; b < bands; b++) {
+            int count = 0;
+            float sum = 0;
+            if (scale == BandScale.MEL) {
+                float low = edges[b], center = edges[b + 1], high = edges[b + 2];
+                for (int k = Math.max(1, (int) Math.ceil(low / binWidth)); k < bins && k * binWidth < high; k++) {
+                    float frequency = k * binWidth;
+                    float weight = frequency < center ? (frequency - low) / (center - low)
+                            : (high - frequency) / (high - center);
+                    if (weight > 0) {
+                        bandIndices[count] = k;
+                        bandWeights[count++] = weight;
+                        sum += weight;
+                    }
+                }
+            } else {
+                float low = edges[b], high = edges[b + 1];
+                int first = Math.max(1, Math.round(low / binWidth));
+                for (int k = first; k < bins && (k - 0.5f) * binWidth < high; k++) {
+                    float overlap = Math.min(high, (k + 0.5f) * binWidth) - Math.max(low, (k - 0.5f) * binWidth);
+                    if (overlap > 0) {
+                        bandIndices[count] = k;
+                        bandWeights[count++] = overlap;
+                        sum += overlap;
+                    }
+                }
+            }
+
+            if (count == 0) {
+                float center = scale == BandScale.MEL ? edges[b + 1] : (edges[b] + edges[b + 1]) / 2;
+                bandIndices[count] = Math.max(1, Math.min(bins - 1, Math.round(center / binWidth)));
+                bandWeights[count++] = sum = 1;
+            }
+
+            if (total + count > indices.length) {
+                indices = Arrays.copyOf(indices, Math.max(2 * indices.length, total + count));
+                weights = Arrays.copyOf(weights, indices.length);
+            }
+            for (int i = 0; i < count; i++) {
+                indices[total + i] = bandIndices[i];
+                weights[total + i] = bandWeights[i] / sum;
+            }
+            total += count;
+            mOffsets[b + 1] = total;
+        }
+        mBinIndices = Arrays.copyOf(indices, total);
+        mWeights = Arrays.copyOf(weights, total);
+    }
+
+    /**
+     * Get the band edges in Hz, the bands of the mel scale are triangles over three consecutive edges
+     */
+    private static float[] getEdges(BandScale scale, int bands, float minFrequency, float maxFrequency) {
+        float[] edges;
+        if (scale == BandScale.MEL) {
+            edges = new float[bands + 2];
+            double minMel = toMel(minFrequency), maxMel = toMel(maxFrequency);
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = (float) fromMel(minMel + (maxMel - minMel) * i / (bands + 1));
+            return edges;
+        }
+
+        edges = new float[bands + 1];
+        double octaves = Math.log(maxFrequency / minFrequency) / Math.log(2);
+        if (scale == BandScale.OCTAVE) {
+            // whole fractions of an octave centered on 1 kHz, the highest band ends below the Nyquist frequency
+            // and the fraction narrows until only the lowest edge, clamped like the other scales, is below the minimum
+            int perOctave = Math.max(1, (int) Math.round(bands / octaves));
+            double top;
+            while (true) {
+                top = Math.floor(perOctave * Math.log(maxFrequency / 1000f) / Math.log(2) + 0.5);
+                if (1000 * Math.pow(2, (top - bands + 0.5) / perOctave) > minFrequency)
+                    break;
+                perOctave++;
+            }
+            for (int i = 0; i <= bands; i++)
+                edges[i] = (float) (1000 * Math.pow(2, (top - bands + i - 0.5) / perOctave));
+            edges[0] = Math.max(edges[0], minFrequency);
+        } else {
+            for (int i = 0; i <= bands; i++)
+                edges[i] = (float) (minFrequency * Math.pow(2, octaves * i / bands));
+        }
+        return edges;
+    }
+
+    private static double toMel(double frequency) {
+        return 2595 * Math.log10(1 + frequency / 700);
+    }
+
+    private static double fromMel(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+
+    /**
+     * Get the shared table of the given spectrum and band count
+     *
+     * @param scale      spacing of the bands, not {@link BandScale#LINEAR}
+     * @param bins       number of bins from DC to Nyquist, see {@link SpectrumUtils#getBinCount(int)}
+     * @param sampleRate of the audio in Hz
+     * @param bands      number of bands
+     * @return the table
+     * @throws IllegalArgumentException if the scale is linear or a count is out of range
+     */
+    public static BandMapper get(BandScale scale, int bins, int sampleRate, int bands) {
+        if (scale == BandScale.LINEAR) {
+            throw new IllegalArgumentException("Linear bands are read with SpectrumUtils.getPeakMagnitude");
+        }
+        if (bins < 2 || bins > MAX_BINS || bands <= 0 || bands > MAX_BANDS || sampleRate <= 0) {
+            throw new IllegalArgumentException("Unsupported spectrum of " + bins + " bins into " + bands + " bands");
+        }
+
+        long key = (((long) sampleRate * MAX_BINS + bins) * MAX_BANDS + bands) * 4 + scale.ordinal();
+        synchronized (sMappers) {
+            BandMapper mapper = sMappers.get(key);
+            if (mapper == null) {
+                mapper = new BandMapper(scale, bins, sampleRate, bands);
+                sMappers.put(key, mapper);
+            }
+            return mapper;
+        }
+    }
+
+    /**
+     * Get the smallest fft size whose bins are no wider than the narrowest band, below it the
+     * lowest bands read the same bin
+     *
+     * @param scale      spacing of the bands, not {@link BandScale#LINEAR}
+     * @param sampleRate of the audio in Hz
+     * @param bands      number of bands
+     * @return power of two fft size, at most {@link #MAX_BINS}
+     */
+    public static int getMinFftSize(BandScale scale, int sampleRate, int bands) {
+        float maxFrequency = sampleRate / 2f;
+        float minFrequency = Math.min(AVConstants.MIN_BAND_FREQUENCY, maxFrequency / 2);
+        float[] edges = getEdges(scale, bands, minFrequency, maxFrequency);
+
+        float minWidth = maxFrequency;
+        for (int i = 1; i < edges.length; i++)
+            minWidth = Math.min(minWidth, edges[i] - edges[i - 1]);
+
+        int size = 2;
+        while (size < MAX_BINS && sampleRate / (float) size > minWidth)
+            size *= 2;
+        return size;
+    }
+
+    /**
+     * Checks if this table maps the given spectrum and band count
+     *
+     * @return true if the table can be used
+     */
+    public boolean matches(BandScale scale, int bins, int sampleRate, int bands) {
+        return mScale == scale && nBins == bins && mSampleRate == sampleRate && nBands == bands;
+    }
+
+    public int getBands() {
+        return nBands;
+    }
+
+    /**
+     * Aggregates the magnitudes of the bins into the bands
+     *
+     * @param magnitudes of the bins, at least the bin count of the table
+     * @param bands      output buffer of at least the band count, each value is the weighted mean of its bins
+     */
+    public void map(float[] magnitudes, float[] bands) {
+        final int[] offsets = mOffsets, indices = mBinIndices;
+        final float[] weights = mWeights;
+        for (int b = 0; b < nBands; b++) {
+            float value = 0;
+            for (int i = offsets[b]; i < offsets[b + 1]; i++)
+                value += weights[i] * magnitudes[indices[i]];
+            bands[b] = value;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.BandReduction;
+
+/**
+ * Reduces a waveform capture to a number of bands, without allocating.
+ * <p>
+ * The samples are split into contiguous bands of nearly equal size and every sample is used,
+ * whatever the capture size. With more bands than samples a sample is shared by consecutive bands.
+ */
+public class BandReducer {
+
+    /**
+     * Reduces the amplitudes in a single pass
+     *
+     * @param reduction   aggregation of the samples of a band
+     * @param amplitudes  normalized samples in range [-1, 1], see {@link com.gauravk.audiovisualizer.model.AudioFrame#amplitudes}
+     * @param sampleCount number of samples to use
+     * @param bands       output buffer, each value is the magnitude of the band in range [0, 1]
+     * @param bandCount   number of bands to write
+     */
+    public static void reduce(BandReduction reduction, float[] amplitudes, int sampleCount,
+                              float[] bands, int bandCount) {
+        if (sampleCount == 0) {
+            for (int b = 0; b < bandCount; b++)
+                bands[b] = 0;
+            return;
+        }
+
+        for (int b = 0; b < bandCount; b++) {
+            int start = (int) ((long) b * sampleCount / bandCount);
+            int end = (int) ((long) (b + 1) * sampleCount / bandCount);
+            if (end <= start)
+                end = start + 1;
+
+            float value = 0;
+            switch (reduction) {
+                case PEAK:
+                    for (int i = start; i < end; i++) {
+                        float amplitude = Math.abs(amplitudes[i]);
+                        if (amplitude > value)
+                            value = amplitude;
+                    }
+                    break;
+                case MEAN_ABS:
+                    for (int i = start; i < end; i++)
+                        value += Math.abs(amplitudes[i]);
+                    value /= end - start;
+                    break;
+                default:
+                    for (int i = start; i < end; i++)
+                        value += amplitudes[i] * amplitudes[i];
+                    value = (float) Math.sqrt(value / (end - start));
+                    break;
+            }
+            bands[b] = Math.min(value, 1);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+/**
+ * Smooths band magnitudes towards their latest targets with separate attack and release time constants,
+ * a rising band follows the attack and a falling one the release.
+ * <p>
+ * The smoothing is exponential in time, so it does not depend on the display refresh rate.
+ * The two coefficients are computed once per frame interval and the bands are updated in a single pass
+ * over primitive arrays, without allocating.
+ */
+public class BandSmoother {
+
+    private final float[] mValues;
+    private final float[] mTargets;
+    private int nBands;
+
+    private long mAttackNanos, mReleaseNanos;
+
+    // coefficients of the last frame interval
+    private long mCoefficientNanos = -1;
+    private float mAttack, mRelease;
+
+    private long mLastUpdateNanos;
+
+    // settled bands do not move while idle, they start again from the arrival of new targets
+    private long mTargetNanos;
+    private boolean isSettled = true;
+
+    /**
+     * @param capacity highest number of bands
+     */
+    public BandSmoother(int capacity) {
+        mValues = new float[capacity];
+        mTargets = new float[capacity];
+    }
+
+    /**
+     * Sets the time constants, the time a band takes to cover about 63% of the distance to its target
+     *
+     * @param attackNanos  time constant of rising bands, 0 to follow them immediately
+     * @param releaseNanos time constant of falling bands, 0 to follow them immediately
+     */
+    public void setTimeConstants(long attackNanos, long releaseNanos) {
+        this.mAttackNanos = attackNanos;
+        this.mReleaseNanos = releaseNanos;
+        mCoefficientNanos = -1;
+    }
+
+    /**
+     * Sets the number of bands, all the bands start again from zero
+     *
+     * @param bands number of bands, at most the capacity
+     */
+    public void reset(int bands) {
+        nBands = bands;
+        for (int b = 0; b < bands; b++) {
+            mValues[b] = 0;
+            mTargets[b] = 0;
+        }
+        mLastUpdateNanos = 0;
+        isSettled = true;
+    }
+
+    /**
+     * Get the targets to be filled with the magnitudes of a new frame
+     *
+     * @return buffer of the targets, valid up to the number of bands
+     */
+    public float[] getTargets() {
+        return mTargets;
+    }
+
+    /**
+     * Sets the time the current targets arrived at, bands which had settled start moving from it
+     *
+     * @param timeNanos arrival time, in the {@link System#nanoTime()} time base
+     */
+    public void setTargetTime(long timeNanos) {
+        this.mTargetNanos = timeNanos;
+    }
+
+    /**
+     * Get the smoothed magnitudes
+     *
+     * @return buffer of the values, valid up to the number of bands
+     */
+    public float[] getValues() {
+        return mValues;
+    }
+
+    /**
+     * Moves the bands towards their targets for the time since the last update
+     *
+     * @param timeNanos time of the frame, in the {@link System#nanoTime()} time base
+     * @return true if a band has not reached its target yet
+     */
+    public boolean update(long timeNanos) {
+        long startNanos = isSettled ? Math.max(mLastUpdateNanos, mTargetNanos) : mLastUpdateNanos;
+        long elapsed = mLastUpdateNanos == 0 ? 0 : timeNanos - startNanos;
+        mLastUpdateNanos = timeNanos;
+        if (elapsed < 0)
+            elapsed = 0;
+        else if (elapsed > AVConstants.MAX_CAPTURE_INTERVAL_NANOS)
+            elapsed = AVConstants.MAX_CAPTURE_INTERVAL_NANOS;
+
+        if (elapsed != mCoefficientNanos) {
+            mAttack = getCoefficient(elapsed, mAttackNanos);
+            mRelease = getCoefficient(elapsed, mReleaseNanos);
+            mCoefficientNanos = elapsed;
+        }
+
+        boolean isMoving = false;
+        for (int b = 0; b < nBands; b++) {
+            float delta = mTargets[b] - mValues[b];
+            if (Math.abs(delta) < AVConstants.SMOOTHING_EPSILON) {
+                mValues[b] = mTargets[b];
+                continue;
+            }
+            mValues[b] += delta * (delta > 0 ? mAttack : mRelease);
+            isMoving = true;
+        }
+        isSettled = !isMoving;
+        return isMoving;
+    }
+
+    private static float getCoefficient(long elapsedNanos, long timeConstantNanos) {
+        if (timeConstantNanos <= 0)
+            return 1;
+        return (float) (1 - Math.exp(-(double) elapsedNanos / timeConstantNanos));
+    }
+}
@@ -15,134 +15,199 @@
 */
 package com.gauravk.audiovisualizer.utils;
 
-import android.graphics.PointF;
-
+/**
+ * Computes the control points of a smooth cubic bezier spline through a set of knots.
+ * <p>
+ * The knots and the control points are kept in primitive x/y buffers which are
+ * allocated once for the maximum size, so updating the spline does not allocate.
+ */
 public class BezierSpline {
 
     private final int nSize;
-    private final PointF[] firstControlPoints, secondControlPoints;
 
+    // control points of each segment, the i-th segment goes from knot i to knot i + 1
+    private final float[] mFirstX, mFirstY, mSecondX, mSecondY;
+
+    // right hand side, temp workspace and correction vector of the linear systems
+    private final float[] mRhs, mTmp, mCorrection;
+
+    // number of knots the correction vector was solved for
+    private int nCorrectionSize;
+
+    /**
+     * @param size maximum number of knots of the spline
+     */
     public BezierSpline(int size) {
-        this.nSize = size - 1;
-        firstControlPoints = new PointF[nSize];
-        secondControlPoints = new PointF[nSize];
-        for (int i = 0; i < nSize; i++) {
-            firstControlPoints[i] = new PointF();
-            secondControlPoints[i] = new PointF();
-        }
+        this.nSize = size;
+        mFirstX = new float[size];
+        mFirstY = new float[size];
+        mSecondX = new float[size];
+        mSecondY = new float[size];
+        mRhs = new float[size];
+        mTmp = new float[size];
+        mCorrection = new float[size];
     }
 
     /**
-     * Get open-ended bezier spline control points.
+     * Get open-ended bezier spline control points, {@code count - 1} segments are updated.
      *
-     * @param knots bezier spline points
-     * @throws IllegalArgumentException if less than two knots are passed.
+     * @param knotsX x values of the bezier spline points
+     * @param knotsY y values of the bezier spline points
+     * @param count  number of knots to use
+     * @throws IllegalArgumentException if less than two or more than size knots are passed.
      */
-    public void updateCurveControlPoints(PointF[] knots) {
-        if (knots == null || knots.length < 2) {
-            throw new IllegalArgumentException("At least two knot points are required");
+    public void updateCurveControlPoints(float[] knotsX, float[] knotsY, int count) {
+        if (count < 2 || count > nSize) {
+            throw new IllegalArgumentException("Between two and " + nSize + " knot points are required");
         }
 
-        final int n = knots.length - 1;
+        final int n = count - 1;
 
         // Special case: bezier curve should be a straight line
         if (n == 1) {
             // 3P1 = 2P0 + P3
-            float x = (2 * knots[0].x + knots[1].x) / 3;
-            float y = (2 * knots[0].y + knots[1].y) / 3;
-
-            firstControlPoints[0].x = x;
-            firstControlPoints[0].y = y;
+            mFirstX[0] = (2 * knotsX[0] + knotsX[1]) / 3;
+            mFirstY[0] = (2 * knotsY[0] + knotsY[1]) / 3;
 
             // P2 = 2P1 - P0
-            x = 2 * firstControlPoints[0].x - knots[0].x;
-            y = 2 * firstControlPoints[0].y - knots[0].y;
+            mSecondX[0] = 2 * mFirstX[0] - knotsX[0];
+            mSecondY[0] = 2 * mFirstY[0] - knotsY[0];
+            return;
+        }
 
-            secondControlPoints[0].x = x;
-            secondControlPoints[0].y = y;
+        // Get first control points X-values
+        updateOpenRhs(knotsX, n);
+        solveTridiagonal(mRhs, mFirstX, n, 2.0f, 3.5f);
 
-        } else {
+        // Get first control points Y-values
+        updateOpenRhs(knotsY, n);
+        solveTridiagonal(mRhs, mFirstY, n, 2.0f, 3.5f);
 
-            // Calculate first bezier control points
-            // Right hand side vector
-            float[] rhs = new float[n];
+        for (int i = 0; i < n - 1; i++) {
+            mSecondX[i] = 2 * knotsX[i + 1] - mFirstX[i + 1];
+            mSecondY[i] = 2 * knotsY[i + 1] - mFirstY[i + 1];
+        }
+        mSecondX[n - 1] = (knotsX[n] + mFirstX[n - 1]) / 2;
+        mSecondY[n - 1] = (knotsY[n] + mFirstY[n - 1]) / 2;
+    }
 
-            // Set right hand side X values
-            for (int i = 1; i < n - 1; i++) {
-                rhs[i] = 4 * knots[i].x + 2 * knots[i + 1].x;
-            }
-            rhs[0] = knots[0].x + 2 * knots[1].x;
-            rhs[n - 1] = (8 * knots[n - 1].x + knots[n].x) / 2f;
+    /**
+     * Get closed bezier spline control points, {@code count} segments are updated
+     * and the last one joins the last knot back to the first one, smoothly.
+     *
+     * @param knotsX x values of the bezier spline points
+     * @param knotsY y values of the bezier spline points
+     * @param count  number of knots to use
+     * @throws IllegalArgumentException if less than three or more than size knots are passed.
+     */
+    public void updateClosedCurveControlPoints(float[] knotsX, float[] knotsY, int count) {
+        if (count < 3 || count > nSize) {
+            throw new IllegalArgumentException("Between three and " + nSize + " knot points are required");
+        }
 
-            // Get first control points X-values
-            float[] x = getFirstControlPoints(rhs);
+        updateClosedRhs(knotsX, count);
+        solveCyclicTridiagonal(mRhs, mFirstX, count);
 
-            // Set right hand side Y values
-            for (int i = 1; i < n - 1; i++) {
-                rhs[i] = 4 * knots[i].y + 2 * knots[i + 1].y;
-            }
-            rhs[0] = knots[0].y + 2 * knots[1].y;
-            rhs[n - 1] = (8 * knots[n - 1].y + knots[n].y) / 2f;
+        updateClosedRhs(knotsY, count);
+        solveCyclicTridiagonal(mRhs, mFirstY, count);
 
-            // Get first control points Y-values
-            float[] y = getFirstControlPoints(rhs);
+        for (int i = 0; i < count; i++) {
+            int next = i + 1 < count ? i + 1 : 0;
+            mSecondX[i] = 2 * knotsX[next] - mFirstX[next];
+            mSecondY[i] = 2 * knotsY[next] - mFirstY[next];
+        }
+    }
 
-            for (int i = 0; i < n; i++) {
-                // First control point
-                firstControlPoints[i].x = x[i];
-                firstControlPoints[i].y = y[i];
-
-                // Second control point
-                if (i < n - 1) {
-                    float xx = 2 * knots[i + 1].x - x[i + 1];
-                    float yy = 2 * knots[i + 1].y - y[i + 1];
-                    secondControlPoints[i].x = xx;
-                    secondControlPoints[i].y = yy;
-                } else {
-                    float xx = (knots[n].x + x[n - 1]) / 2;
-                    float yy = (knots[n].y + y[n - 1]) / 2;
-                    secondControlPoints[i].x = xx;
-                    secondControlPoints[i].y = yy;
-                }
-            }
+    private void updateOpenRhs(float[] knots, int n) {
+        for (int i = 1; i < n - 1; i++) {
+            mRhs[i] = 4 * knots[i] + 2 * knots[i + 1];
         }
+        mRhs[0] = knots[0] + 2 * knots[1];
+        mRhs[n - 1] = (8 * knots[n - 1] + knots[n]) / 2f;
+    }
+
+    private void updateClosedRhs(float[] knots, int n) {
+        for (int i = 0; i < n - 1; i++) {
+            mRhs[i] = 4 * knots[i] + 2 * knots[i + 1];
+        }
+        mRhs[n - 1] = 4 * knots[n - 1] + 2 * knots[0];
     }
 
     /**
-     * Solves a tridiagonal system for one of coordinates (x or y) of first
-     * bezier control points.
+     * Solves a tridiagonal system with unit off-diagonals, a diagonal of 4
+     * and the given first and last diagonal values.
      *
-     * @param rhs right hand side vector.
-     * @return Solution vector.
+     * @param rhs    right hand side vector.
+     * @param x      solution vector.
+     * @param n      size of the system.
+     * @param bFirst first diagonal value.
+     * @param bLast  last diagonal value.
      */
-    private float[] getFirstControlPoints(float[] rhs) {
-        int n = rhs.length;
-        float[] x = new float[n]; // Solution vector
-        float[] tmp = new float[n]; // Temp workspace
-
-        float b = 2.0f;
+    private void solveTridiagonal(float[] rhs, float[] x, int n, float bFirst, float bLast) {
+        float b = bFirst;
         x[0] = rhs[0] / b;
 
         // Decomposition and forward substitution
         for (int i = 1; i < n; i++) {
-            tmp[i] = 1 / b;
-            b = (i < n - 1 ? 4.0f : 3.5f) - tmp[i];
+            mTmp[i] = 1 / b;
+            b = (i < n - 1 ? 4.0f : bLast) - mTmp[i];
             x[i] = (rhs[i] - x[i - 1]) / b;
         }
 
         // Backsubstitution
         for (int i = 1; i < n; i++) {
-            x[n - i - 1] -= tmp[n - i] * x[n - i];
+            x[n - i - 1] -= mTmp[n - i] * x[n - i];
+        }
+    }
+
+    /**
+     * Solves the periodic system {@code x[i - 1] + 4 x[i] + x[i + 1] = rhs[i]}, indices wrapping around,
+     * with the Sherman-Morrison formula over a tridiagonal solve.
+     *
+     * @param rhs right hand side vector.
+     * @param x   solution vector.
+     * @param n   size of the system.
+     */
+    private void solveCyclicTridiagonal(float[] rhs, float[] x, int n) {
+        // corner elements are 1, gamma = -diagonal
+        final float gamma = -4.0f;
+        final float bFirst = 4.0f - gamma;
+        final float bLast = 4.0f - 1 / gamma;
+
+        // the correction vector only depends on the size of the system
+        if (nCorrectionSize != n) {
+            for (int i = 0; i < n; i++) {
+                mCorrection[i] = 0;
+            }
+            mCorrection[0] = gamma;
+            mCorrection[n - 1] = 1;
+            // solved in place, each rhs value is read before it is overwritten
+            solveTridiagonal(mCorrection, mCorrection, n, bFirst, bLast);
+            nCorrectionSize = n;
+        }
+
+        solveTridiagonal(rhs, x, n, bFirst, bLast);
+
+        float factor = (x[0] + x[n - 1] / gamma)
+                / (1 + mCorrection[0] + mCorrection[n - 1] / gamma);
+        for (int i = 0; i < n; i++) {
+            x[i] -= factor * mCorrection[i];
         }
+    }
+
+    public float[] getFirstControlPointsX() {
+        return mFirstX;
+    }
 
-        return x;
+    public float[] getFirstControlPointsY() {
+        return mFirstY;
     }
 
-    public PointF[] getFirstControlPoints() {
-        return firstControlPoints;
+    public float[] getSecondControlPointsX() {
+        return mSecondX;
     }
 
-    public PointF[] getSecondControlPoints() {
-        return secondControlPoints;
+    public float[] getSecondControlPointsY() {
+        return mSecondY;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+/**
+ * Fixed size histogram of durations with a relative precision of about 6%.
+ * <p>
+ * Durations are counted in microseconds, exactly below 32us and in 16 sub buckets per power of two above,
+ * up to about one second. Recording does not allocate.
+ */
+public class DurationHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_SHIFT = 16;
+    private static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_SHIFT + 2);
+
+    private final int[] mCounts = new int[BUCKET_COUNT];
+    private long nCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    /**
+     * Records a duration
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        mCounts[getBucket(nanos / 1000)]++;
+        nCount++;
+        mTotalNanos += nanos;
+        if (nanos > mMaxNanos)
+            mMaxNanos = nanos;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            mCounts[i] = 0;
+        nCount = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    /**
+     * Copies the recorded durations into another histogram
+     *
+     * @param histogram to copy into
+     */
+    public void copyTo(DurationHistogram histogram) {
+        System.arraycopy(mCounts, 0, histogram.mCounts, 0, BUCKET_COUNT);
+        histogram.nCount = nCount;
+        histogram.mTotalNanos = mTotalNanos;
+        histogram.mMaxNanos = mMaxNanos;
+    }
+
+    public long getCount() {
+        return nCount;
+    }
+
+    public long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    public long getMeanNanos() {
+        return nCount > 0 ? mTotalNanos / nCount : 0;
+    }
+
+    /**
+     * Get the duration below which the given percentage of the durations fall
+     *
+     * @param percentile in range [0, 100]
+     * @return upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing is recorded
+     */
+    public long getPercentileNanos(float percentile) {
+        if (nCount == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(nCount * percentile / 100);
+        if (rank < 1)
+            rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank)
+                return i == BUCKET_COUNT - 1 ? mMaxNanos : Math.min(getUpperBound(i) * 1000, mMaxNanos);
+        }
+        return mMaxNanos;
+    }
+
+    private static int getBucket(long micros) {
+        if (micros < 2 * SUB_BUCKETS)
+            return (int) micros;
+
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - 4;
+        if (shift > MAX_SHIFT)
+            return BUCKET_COUNT - 1;
+        return SUB_BUCKETS * shift + (int) (micros >> shift);
+    }
+
+    private static long getUpperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket + 1;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket + 1) << shift;
+    }
+}
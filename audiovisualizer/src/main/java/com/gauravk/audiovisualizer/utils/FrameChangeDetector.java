@@ -0,0 +1,95 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.BandReduction;
+import com.gauravk.audiovisualizer.model.DataSource;
+
+/**
+ * Detects captured frames which would not visibly change the visualization, so they can be dropped
+ * before a redraw is scheduled.
+ * <p>
+ * Each frame is reduced to a coarse signature of band peaks and compared to the last changed frame.
+ * A frame is unchanged if it is silent after a silent frame, or if no band moved by more than the change
+ * threshold. Comparing to the last changed frame instead of the previous one lets slow drifts through.
+ * Unchanged frames are still let through until the visualization had the time to settle.
+ */
+public class FrameChangeDetector {
+
+    private static final int SIGNATURE_BANDS = 32;
+
+    private final float[] mSignature = new float[SIGNATURE_BANDS];
+    private final float[] mReference = new float[SIGNATURE_BANDS];
+    private boolean hasReference, isReferenceSilent;
+    private int nUnchangedFrames;
+
+    private float mSilenceThreshold = AVConstants.DEFAULT_SILENCE_THRESHOLD;
+    private float mChangeThreshold = AVConstants.DEFAULT_CHANGE_THRESHOLD;
+
+    /**
+     * Sets the thresholds of the detection, as normalized magnitudes
+     *
+     * @param silenceThreshold peak below which a frame is silent
+     * @param changeThreshold  smallest band change which makes a frame changed
+     */
+    public synchronized void setThresholds(float silenceThreshold, float changeThreshold) {
+        this.mSilenceThreshold = silenceThreshold;
+        this.mChangeThreshold = changeThreshold;
+    }
+
+    /**
+     * Compares a frame to the last changed one, it becomes the reference if it changed
+     *
+     * @param frame        captured frame
+     * @param source       data of the frame to compare
+     * @param settleFrames number of unchanged frames to let through after a change
+     * @return true if the frame should be drawn
+     */
+    public synchronized boolean isChanged(AudioFrame frame, DataSource source, int settleFrames) {
+        if (source == DataSource.SPECTRUM)
+            BandReducer.reduce(BandReduction.PEAK, frame.fftMagnitudes, frame.fftBins, mSignature, SIGNATURE_BANDS);
+        else
+            BandReducer.reduce(BandReduction.PEAK, frame.amplitudes, frame.sampleCount, mSignature, SIGNATURE_BANDS);
+
+        float peak = 0, change = 0;
+        for (int b = 0; b < SIGNATURE_BANDS; b++) {
+            peak = Math.max(peak, mSignature[b]);
+            change = Math.max(change, Math.abs(mSignature[b] - mReference[b]));
+        }
+
+        boolean silent = peak < mSilenceThreshold;
+        if (hasReference && (silent && isReferenceSilent || change < mChangeThreshold)) {
+            if (nUnchangedFrames >= settleFrames)
+                return false;
+            nUnchangedFrames++;
+            return true;
+        }
+
+        System.arraycopy(mSignature, 0, mReference, 0, SIGNATURE_BANDS);
+        isReferenceSilent = silent;
+        hasReference = true;
+        nUnchangedFrames = 0;
+        return true;
+    }
+
+    /**
+     * Forgets the reference frame, the next frame is always changed
+     */
+    public synchronized void reset() {
+        hasReference = false;
+    }
+}
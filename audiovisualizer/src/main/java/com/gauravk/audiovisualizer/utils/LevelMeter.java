@@ -0,0 +1,175 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.AudioLevels;
+
+/**
+ * Incremental level meter: the peak and the rms of each frame are measured in a single pass over its
+ * samples, the short-term values are kept over a sliding time window with O(1) updates.
+ * <p>
+ * The window keeps the running sum of the mean squares of its frames, and a monotonic queue of frame
+ * peaks whose head is the highest peak of the window. Measuring does not allocate.
+ */
+public class LevelMeter {
+
+    private static final int MAX_WINDOW_FRAMES = 64;
+
+    // frames of the window, oldest first
+    private final long[] mFrameTimes = new long[MAX_WINDOW_FRAMES];
+    private final double[] mMeanSquares = new double[MAX_WINDOW_FRAMES];
+    private int mFrameHead, nFrames;
+    private double mSumSquares;
+
+    // decreasing peaks of the window, the head is the highest
+    private final long[] mPeakTimes = new long[MAX_WINDOW_FRAMES];
+    private final float[] mPeaks = new float[MAX_WINDOW_FRAMES];
+    private int mPeakHead, nPeaks;
+
+    private long mWindowNanos = AVConstants.DEFAULT_LEVEL_WINDOW_NANOS;
+    private long mHoldNanos = AVConstants.DEFAULT_PEAK_HOLD_NANOS;
+    private float mHoldDecayPerSecond = AVConstants.DEFAULT_PEAK_HOLD_DECAY;
+
+    private float mPeak, mRms;
+    private float mPeakHold;
+    private long mPeakHoldNanos, mLastFrameNanos;
+
+    /**
+     * Sets the duration of the window of the short-term levels
+     *
+     * @param windowNanos duration in nanoseconds
+     */
+    public synchronized void setWindow(long windowNanos) {
+        this.mWindowNanos = windowNanos;
+    }
+
+    /**
+     * Sets how long the peak is held and how fast it falls afterwards
+     *
+     * @param holdNanos        time the peak is held for
+     * @param decayPerSecond   linear amplitude lost per second once the hold time is over
+     */
+    public synchronized void setPeakHold(long holdNanos, float decayPerSecond) {
+        this.mHoldNanos = holdNanos;
+        this.mHoldDecayPerSecond = decayPerSecond;
+    }
+
+    /**
+     * Measures a frame of samples
+     *
+     * @param amplitudes normalized samples in range [-1, 1]
+     * @param count      number of samples
+     * @param timeNanos  time of the frame, in the {@link System#nanoTime()} time base
+     */
+    public synchronized void addSamples(float[] amplitudes, int count, long timeNanos) {
+        if (count == 0)
+            return;
+
+        float peak = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            float amplitude = amplitudes[i];
+            float magnitude = Math.abs(amplitude);
+            if (magnitude > peak)
+                peak = magnitude;
+            sumSquares += amplitude * amplitude;
+        }
+        addFrame(peak, sumSquares / count, timeNanos);
+    }
+
+    /**
+     * Adds the levels of a frame measured elsewhere
+     *
+     * @param peak      linear peak of the frame
+     * @param rms       linear rms of the frame
+     * @param timeNanos time of the frame, in the {@link System#nanoTime()} time base
+     */
+    public synchronized void addLevels(float peak, float rms, long timeNanos) {
+        addFrame(peak, (double) rms * rms, timeNanos);
+    }
+
+    private void addFrame(float peak, double meanSquare, long timeNanos) {
+        mPeak = Math.min(peak, 1);
+        mRms = (float) Math.min(Math.sqrt(meanSquare), 1);
+
+        //drop the frames which left the window, and the oldest one if the window is full
+        while (nFrames > 0 && (nFrames == MAX_WINDOW_FRAMES || timeNanos - mFrameTimes[mFrameHead] > mWindowNanos))
+            removeOldestFrame();
+
+        int tail = (mFrameHead + nFrames) % MAX_WINDOW_FRAMES;
+        mFrameTimes[tail] = timeNanos;
+        mMeanSquares[tail] = meanSquare;
+        mSumSquares += meanSquare;
+        nFrames++;
+
+        //lower peaks can never be the highest of the window again
+        while (nPeaks > 0 && mPeaks[(mPeakHead + nPeaks - 1) % MAX_WINDOW_FRAMES] <= mPeak)
+            nPeaks--;
+        tail = (mPeakHead + nPeaks) % MAX_WINDOW_FRAMES;
+        mPeakTimes[tail] = timeNanos;
+        mPeaks[tail] = mPeak;
+        nPeaks++;
+
+        updatePeakHold(timeNanos);
+        mLastFrameNanos = timeNanos;
+    }
+
+    private void removeOldestFrame() {
+        long time = mFrameTimes[mFrameHead];
+        mSumSquares -= mMeanSquares[mFrameHead];
+        mFrameHead = (mFrameHead + 1) % MAX_WINDOW_FRAMES;
+        nFrames--;
+        if (nFrames == 0)
+            mSumSquares = 0;
+
+        while (nPeaks > 0 && mPeakTimes[mPeakHead] <= time) {
+            mPeakHead = (mPeakHead + 1) % MAX_WINDOW_FRAMES;
+            nPeaks--;
+        }
+    }
+
+    private void updatePeakHold(long timeNanos) {
+        if (mPeak >= mPeakHold) {
+            mPeakHold = mPeak;
+            mPeakHoldNanos = timeNanos;
+        } else if (timeNanos - mPeakHoldNanos > mHoldNanos) {
+            float elapsedSeconds = (timeNanos - Math.max(mLastFrameNanos, mPeakHoldNanos + mHoldNanos)) / 1e9f;
+            mPeakHold = Math.max(mPeak, mPeakHold - mHoldDecayPerSecond * elapsedSeconds);
+        }
+    }
+
+    /**
+     * Copies the current levels
+     *
+     * @param levels to be filled
+     */
+    public synchronized void getLevels(AudioLevels levels) {
+        float shortTermPeak = nPeaks > 0 ? mPeaks[mPeakHead] : 0;
+        float shortTermRms = nFrames > 0 ? (float) Math.sqrt(Math.max(mSumSquares, 0) / nFrames) : 0;
+        levels.set(mPeak, mRms, shortTermPeak, Math.min(shortTermRms, 1), mPeakHold);
+    }
+
+    /**
+     * Clears the window and the held peak
+     */
+    public synchronized void reset() {
+        mFrameHead = nFrames = 0;
+        mPeakHead = nPeaks = 0;
+        mSumSquares = 0;
+        mPeak = mRms = mPeakHold = 0;
+        mPeakHoldNanos = mLastFrameNanos = 0;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.BandReduction;
+import com.gauravk.audiovisualizer.model.DataSource;
+
+/**
+ * Streaming onset detector with an adaptive threshold.
+ * <p>
+ * The novelty of a frame is its spectral flux, the mean rise of its spectrum bands since the previous frame.
+ * Without a spectrum it is the rise of the rms of the waveform. A frame is an onset when its novelty exceeds
+ * the mean of the recent novelties by a number of standard deviations, kept with running sums over a fixed
+ * ring of frames. Each frame costs O(bands) and does not allocate.
+ */
+public class OnsetDetector {
+
+    private static final int SPECTRUM_BANDS = 32;
+    private static final int HISTORY_FRAMES = 32;
+    private static final int MIN_HISTORY_FRAMES = 8;
+
+    private final float[] mBands = new float[SPECTRUM_BANDS];
+    private final float[] mPreviousBands = new float[SPECTRUM_BANDS];
+    private int nBands;
+
+    // novelties of the recent frames and their running sums
+    private final float[] mHistory = new float[HISTORY_FRAMES];
+    private int mHistoryHead, nHistory;
+    private double mSum, mSumSquares;
+
+    private float mSensitivity = AVConstants.DEFAULT_ONSET_SENSITIVITY;
+    private long mMinIntervalNanos = AVConstants.DEFAULT_ONSET_MIN_INTERVAL_NANOS;
+
+    private long mOnsetTimeNanos;
+    private float mOnsetStrength;
+
+    /**
+     * Sets how far above the recent novelties an onset must be
+     *
+     * @param sensitivity number of standard deviations above the mean, lower detects more onsets
+     */
+    public synchronized void setSensitivity(float sensitivity) {
+        this.mSensitivity = sensitivity;
+    }
+
+    /**
+     * Sets the shortest time between two onsets
+     *
+     * @param minIntervalNanos time in nanoseconds
+     */
+    public synchronized void setMinInterval(long minIntervalNanos) {
+        this.mMinIntervalNanos = minIntervalNanos;
+    }
+
+    /**
+     * Analyses a captured frame
+     *
+     * @param frame     captured frame
+     * @param source    data of the frame to analyse
+     * @param timeNanos capture time of the frame, in the {@link System#nanoTime()} time base
+     * @return true if the frame is an onset
+     */
+    public synchronized boolean process(AudioFrame frame, DataSource source, long timeNanos) {
+        int bands;
+        if (source == DataSource.SPECTRUM) {
+            bands = SPECTRUM_BANDS;
+            BandReducer.reduce(BandReduction.MEAN_ABS, frame.fftMagnitudes, frame.fftBins, mBands, bands);
+        } else {
+            bands = 1;
+            BandReducer.reduce(BandReduction.RMS, frame.amplitudes, frame.sampleCount, mBands, bands);
+        }
+
+        float flux = 0;
+        for (int b = 0; b < bands; b++) {
+            float rise = mBands[b] - mPreviousBands[b];
+            if (rise > 0)
+                flux += rise;
+            mPreviousBands[b] = mBands[b];
+        }
+        flux /= bands;
+
+        //the first frame of a source has nothing to rise from
+        if (bands != nBands) {
+            nBands = bands;
+            clearHistory();
+            return false;
+        }
+
+        boolean isOnset = false;
+        if (nHistory >= MIN_HISTORY_FRAMES) {
+            double mean = mSum / nHistory;
+            double deviation = Math.sqrt(Math.max(mSumSquares / nHistory - mean * mean, 0));
+            double threshold = Math.max(mean + mSensitivity * deviation, AVConstants.MIN_ONSET_FLUX);
+            if (flux > threshold && timeNanos - mOnsetTimeNanos >= mMinIntervalNanos) {
+                mOnsetTimeNanos = timeNanos;
+                mOnsetStrength = (float) Math.min((flux - mean) / flux, 1);
+                isOnset = true;
+            }
+        }
+
+        if (nHistory == HISTORY_FRAMES) {
+            float oldest = mHistory[mHistoryHead];
+            mSum -= oldest;
+            mSumSquares -= oldest * oldest;
+            mHistoryHead = (mHistoryHead + 1) % HISTORY_FRAMES;
+            nHistory--;
+        }
+        mHistory[(mHistoryHead + nHistory) % HISTORY_FRAMES] = flux;
+        mSum += flux;
+        mSumSquares += flux * flux;
+        nHistory++;
+        return isOnset;
+    }
+
+    /**
+     * Get the time of the latest onset
+     *
+     * @return capture time of the onset frame, 0 if there was no onset yet
+     */
+    public synchronized long getOnsetTimeNanos() {
+        return mOnsetTimeNanos;
+    }
+
+    /**
+     * Get the strength of the latest onset, how far its novelty stands out of the recent ones
+     *
+     * @return strength in range (0, 1]
+     */
+    public synchronized float getOnsetStrength() {
+        return mOnsetStrength;
+    }
+
+    /**
+     * Forgets the previous frames and onsets
+     */
+    public synchronized void reset() {
+        nBands = 0;
+        clearHistory();
+        mOnsetTimeNanos = 0;
+        mOnsetStrength = 0;
+    }
+
+    private void clearHistory() {
+        mHistoryHead = nHistory = 0;
+        mSum = mSumSquares = 0;
+    }
+}
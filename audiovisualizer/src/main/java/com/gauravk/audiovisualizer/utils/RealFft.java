@@ -0,0 +1,185 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.FftWindow;
+
+/**
+ * Radix-2 FFT of real samples, for audio which is not captured by {@link android.media.audiofx.Visualizer}.
+ * <p>
+ * The samples are packed into a complex FFT of half the size, whose result is split into the spectrum
+ * of the real input. The window, twiddle and bit-reversal tables and the work buffers are allocated once,
+ * so a transform does not allocate. An instance must be used from a single thread.
+ */
+public class RealFft {
+
+    private final int nSize;
+    private final FftWindow mWindow;
+
+    // coefficients of the window and their sum, the gain of the window on a sine
+    private final float[] mWindowTable;
+    private final float mWindowGain;
+
+    // cos and sin of 2 * PI * k / size, for k in [0, size / 2)
+    private final float[] mCos, mSin;
+
+    // bit-reversed positions of the complex fft of size / 2
+    private final int[] mReversed;
+
+    private final float[] mReal, mImag;
+
+    /**
+     * @param size   number of samples of a transform, a power of two in
+     *               range [{@link AVConstants#MIN_FFT_SIZE}, {@link AVConstants#MAX_FFT_SIZE}]
+     * @param window applied to the samples
+     * @throws IllegalArgumentException if the size is not supported
+     */
+    public RealFft(int size, FftWindow window) {
+        if (size < AVConstants.MIN_FFT_SIZE || size > AVConstants.MAX_FFT_SIZE || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("Unsupported fft size " + size);
+        }
+
+        this.nSize = size;
+        this.mWindow = window;
+
+        mWindowTable = new float[size];
+        float gain = 0;
+        for (int i = 0; i < size; i++) {
+            mWindowTable[i] = getWindowCoefficient(window, i, size);
+            gain += mWindowTable[i];
+        }
+        mWindowGain = gain;
+
+        int half = size / 2;
+        mCos = new float[half];
+        mSin = new float[half];
+        for (int k = 0; k < half; k++) {
+            double angle = 2 * Math.PI * k / size;
+            mCos[k] = (float) Math.cos(angle);
+            mSin[k] = (float) Math.sin(angle);
+        }
+
+        int bits = Integer.numberOfTrailingZeros(half);
+        mReversed = new int[half];
+        for (int i = 0; i < half; i++)
+            mReversed[i] = Integer.reverse(i) >>> (32 - bits);
+
+        mReal = new float[half];
+        mImag = new float[half];
+    }
+
+    private static float getWindowCoefficient(FftWindow window, int i, int size) {
+        double angle = 2 * Math.PI * i / size;
+        if (window == FftWindow.BLACKMAN_HARRIS)
+            return (float) (0.35875 - 0.48829 * Math.cos(angle) + 0.14128 * Math.cos(2 * angle)
+                    - 0.01168 * Math.cos(3 * angle));
+        return (float) (0.5 - 0.5 * Math.cos(angle));
+    }
+
+    /**
+     * Get the largest supported size which fits the given number of samples
+     *
+     * @param samples number of available samples
+     * @return power of two size, {@link AVConstants#MIN_FFT_SIZE} if there are fewer samples
+     */
+    public static int getFittingSize(int samples) {
+        if (samples <= AVConstants.MIN_FFT_SIZE)
+            return AVConstants.MIN_FFT_SIZE;
+        return Math.min(Integer.highestOneBit(samples), AVConstants.MAX_FFT_SIZE);
+    }
+
+    public int getSize() {
+        return nSize;
+    }
+
+    public FftWindow getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * Transforms the latest samples into normalized magnitudes on a dB scale. A full scale sine
+     * maps through {@link SpectrumUtils#normalizeDecibels(float)}, like the full scale bins of
+     * {@link SpectrumUtils#computeMagnitudes(byte[], float[])}. Missing samples are zero.
+     *
+     * @param samples    in range [-1, 1]
+     * @param count      number of valid samples, the last size of them are transformed
+     * @param magnitudes output buffer of at least {@link SpectrumUtils#getBinCount(int)} of the size elements,
+     *                   each value is in range [0, 1]
+     * @return number of bins written, from DC to Nyquist
+     */
+    public int computeMagnitudes(float[] samples, int count, float[] magnitudes) {
+        final int half = nSize / 2;
+        final int offset = Math.max(count - nSize, 0);
+        final int available = Math.min(count, nSize);
+        final float[] re = mReal, im = mImag;
+
+        // pack the even samples as the real and the odd ones as the imaginary parts, in bit-reversed order
+        for (int i = 0; i < half; i++) {
+            int even = 2 * i, odd = even + 1;
+            int j = mReversed[i];
+            re[j] = even < available ? samples[offset + even] * mWindowTable[even] : 0;
+            im[j] = odd < available ? samples[offset + odd] * mWindowTable[odd] : 0;
+        }
+
+        transform(half);
+
+        // split the packed result into the spectrum of the real samples
+        float scale = 2 / mWindowGain;
+        magnitudes[0] = toNormalizedDb((re[0] + im[0]) / mWindowGain);
+        magnitudes[half] = toNormalizedDb((re[0] - im[0]) / mWindowGain);
+        for (int k = 1; k < half; k++) {
+            int m = half - k;
+            float evenRe = re[k] + re[m], evenIm = im[k] - im[m];
+            float oddRe = im[k] + im[m], oddIm = re[m] - re[k];
+            float c = mCos[k], s = mSin[k];
+            float binRe = evenRe + c * oddRe + s * oddIm;
+            float binIm = evenIm + c * oddIm - s * oddRe;
+            // the halves of the even and odd parts are folded into the scale
+            magnitudes[k] = toNormalizedDb(0.5f * scale * (float) Math.sqrt(binRe * binRe + binIm * binIm));
+        }
+        return half + 1;
+    }
+
+    /**
+     * In-place complex fft of the bit-reversed work buffers
+     */
+    private void transform(int points) {
+        final float[] re = mReal, im = mImag;
+        for (int span = 1; span < points; span *= 2) {
+            // twiddles of this stage are every (size / 2 / span)-th entry of the tables
+            int stride = nSize / (2 * span);
+            for (int j = 0; j < span; j++) {
+                float c = mCos[j * stride], s = -mSin[j * stride];
+                for (int i = j; i < points; i += 2 * span) {
+                    int k = i + span;
+                    float tRe = c * re[k] - s * im[k];
+                    float tIm = c * im[k] + s * re[k];
+                    re[k] = re[i] - tRe;
+                    im[k] = im[i] - tIm;
+                    re[i] += tRe;
+                    im[i] += tIm;
+                }
+            }
+        }
+    }
+
+    private static float toNormalizedDb(float amplitude) {
+        amplitude = Math.abs(amplitude);
+        if (amplitude <= 0)
+            return 0;
+        return SpectrumUtils.normalizeDecibels((float) (20 * Math.log10(amplitude)));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+/**
+ * Helpers to convert the FFT bytes captured by {@link android.media.audiofx.Visualizer}
+ * into per-bin magnitudes, without allocating.
+ */
+public class SpectrumUtils {
+
+    /**
+     * Upper bound of 10 * log10(re^2 + im^2) for signed 8-bit real and imaginary parts
+     */
+    private static final float MAX_POWER_DB = (float) (10 * Math.log10(2 * 128 * 128));
+
+    /**
+     * Returns the number of magnitude bins produced by a FFT capture of the given size
+     *
+     * @param fftSize length of the captured fft bytes
+     * @return number of bins, from DC to Nyquist
+     */
+    public static int getBinCount(int fftSize) {
+        return fftSize / 2 + 1;
+    }
+
+    /**
+     * Converts the interleaved FFT bytes into normalized magnitudes on a dB scale.
+     * <p>
+     * The input follows the {@link android.media.audiofx.Visualizer#getFft(byte[])} layout:
+     * index 0 holds the real DC part, index 1 the real Nyquist part and the remaining
+     * bytes are (real, imaginary) pairs of the bins in between.
+     *
+     * @param fft        captured fft bytes
+     * @param magnitudes output buffer of at least {@link #getBinCount(int)} elements,
+     *                   each value is in range [0, 1]
+     * @return number of bins written
+     */
+    public static int computeMagnitudes(byte[] fft, float[] magnitudes) {
+        final int n = fft.length / 2;
+
+        magnitudes[0] = toNormalizedDb(fft[0] * fft[0]);
+        magnitudes[n] = toNormalizedDb(fft[1] * fft[1]);
+        for (int k = 1; k < n; k++) {
+            int re = fft[2 * k];
+            int im = fft[2 * k + 1];
+            magnitudes[k] = toNormalizedDb(re * re + im * im);
+        }
+        return n + 1;
+    }
+
+    /**
+     * Get the spectrum magnitude of a point, the peak of the bins which fall into it.
+     * The DC bin is skipped.
+     *
+     * @param magnitudes normalized magnitudes
+     * @param bins       number of valid magnitudes
+     * @param point      index of the point
+     * @param points     total number of points
+     * @return magnitude in range [0, 1]
+     */
+    public static float getPeakMagnitude(float[] magnitudes, int bins, int point, int points) {
+        int usableBins = bins - 1;
+        int start = 1 + point * usableBins / points;
+        int end = 1 + (point + 1) * usableBins / points;
+        if (end <= start)
+            end = start + 1;
+
+        float magnitude = 0;
+        for (int i = start; i < end && i < bins; i++) {
+            if (magnitudes[i] > magnitude)
+                magnitude = magnitudes[i];
+        }
+        return magnitude;
+    }
+
+    /**
+     * Maps a level relative to full scale onto the normalized dB scale of the spectra, shared by
+     * the captured and the computed ones. Full scale maps to 1 and levels about 45 dB or more
+     * below it map to 0, the range of the 8-bit captured bins.
+     *
+     * @param decibels level in dB relative to full scale
+     * @return magnitude in range [0, 1]
+     */
+    public static float normalizeDecibels(float decibels) {
+        return Math.max(0, Math.min(1, 1 + decibels / MAX_POWER_DB));
+    }
+
+    private static float toNormalizedDb(int power) {
+        if (power <= 1)
+            return 0;
+        return normalizeDecibels((float) (10 * Math.log10(power)) - MAX_POWER_DB);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer to hand off frames from a single producer thread to a single consumer thread.
+ * <p>
+ * The producer fills the back slot and publishes it with one atomic swap, the consumer swaps in the
+ * latest published slot before reading it. Neither side locks, allocates or sees a partially written frame,
+ * frames which are not consumed in time are overwritten by newer ones.
+ *
+ * @param <T> type of the preallocated slots
+ */
+public class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FLAG_DIRTY = 0x4;
+
+    private final Object[] mSlots;
+
+    // index of the middle slot, with FLAG_DIRTY set if it holds a frame not yet consumed
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+
+    // owned by the producer
+    private int mBackIndex = 2;
+
+    // owned by the consumer
+    private int mFrontIndex = 0;
+
+    public TripleBuffer(T front, T middle, T back) {
+        mSlots = new Object[]{front, middle, back};
+    }
+
+    /**
+     * Get the slot to be filled by the producer, it stays the same until {@link #publish()}
+     *
+     * @return the back slot
+     */
+    @SuppressWarnings("unchecked")
+    public T getBackSlot() {
+        return (T) mSlots[mBackIndex];
+    }
+
+    /**
+     * Publishes the back slot as the latest frame, called by the producer
+     */
+    public void publish() {
+        mBackIndex = mMiddle.getAndSet(mBackIndex | FLAG_DIRTY) & INDEX_MASK;
+    }
+
+    /**
+     * Swaps in the latest published frame if there is one, called by the consumer
+     *
+     * @return true if the front slot was updated
+     */
+    public boolean update() {
+        if ((mMiddle.get() & FLAG_DIRTY) == 0)
+            return false;
+
+        mFrontIndex = mMiddle.getAndSet(mFrontIndex) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Get the slot read by the consumer, it stays the same until {@link #update()}
+     *
+     * @return the front slot
+     */
+    @SuppressWarnings("unchecked")
+    public T getFrontSlot() {
+        return (T) mSlots[mFrontIndex];
+    }
+}
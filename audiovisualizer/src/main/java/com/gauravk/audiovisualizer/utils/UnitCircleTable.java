@@ -0,0 +1,94 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table of the cosine and sine of {@code points} evenly spaced angles
+ * on the unit circle, starting at angle 0.
+ * <p>
+ * Tables are cached by point count, so visualizers with the same density share one table
+ * and the per frame geometry becomes multiply-adds over float arrays.
+ */
+public final class UnitCircleTable {
+
+    private static final Map<Integer, UnitCircleTable> sTables = new HashMap<>();
+
+    private final int nPoints;
+    private final float[] mCos, mSin;
+
+    private UnitCircleTable(int points) {
+        this.nPoints = points;
+        mCos = new float[points];
+        mSin = new float[points];
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            mCos[i] = (float) Math.cos(angle);
+            mSin[i] = (float) Math.sin(angle);
+        }
+    }
+
+    /**
+     * Get the shared table for the given number of points
+     *
+     * @param points number of evenly spaced angles
+     * @return the table
+     * @throws IllegalArgumentException if points is not positive
+     */
+    public static UnitCircleTable get(int points) {
+        if (points <= 0) {
+            throw new IllegalArgumentException("At least one point is required");
+        }
+
+        synchronized (sTables) {
+            UnitCircleTable table = sTables.get(points);
+            if (table == null) {
+                table = new UnitCircleTable(points);
+                sTables.put(points, table);
+            }
+            return table;
+        }
+    }
+
+    public int getPoints() {
+        return nPoints;
+    }
+
+    /**
+     * @param index of the angle, wrapped around the circle
+     * @return cosine of {@code 2 * PI * index / points}
+     */
+    public float cos(int index) {
+        return mCos[wrap(index)];
+    }
+
+    /**
+     * @param index of the angle, wrapped around the circle
+     * @return sine of {@code 2 * PI * index / points}
+     */
+    public float sin(int index) {
+        return mSin[wrap(index)];
+    }
+
+    private int wrap(int index) {
+        if (index >= 0 && index < nPoints)
+            return index;
+        index %= nPoints;
+        return index < 0 ? index + nPoints : index;
+    }
+}
@@ -16,17 +16,17 @@
 package com.gauravk.audiovisualizer.visualizer;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Rect;
+import android.graphics.Paint;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 
+import com.gauravk.audiovisualizer.R;
 import com.gauravk.audiovisualizer.base.BaseVisualizer;
-import com.gauravk.audiovisualizer.model.AnimSpeed;
-import com.gauravk.audiovisualizer.model.PositionGravity;
-import com.gauravk.audiovisualizer.utils.AVConstants;
-
-import java.util.Random;
+import com.gauravk.audiovisualizer.engine.BarEngine;
+import com.gauravk.audiovisualizer.engine.VisualizerEngine;
+import com.gauravk.audiovisualizer.model.VisualizerConfig;
 
 /**
  * Custom view to create bar visualizer
@@ -36,22 +36,6 @@ import java.util.Random;
 
 public class BarVisualizer extends BaseVisualizer {
 
-    private static final int BAR_MAX_POINTS = 120;
-    private static final int BAR_MIN_POINTS = 3;
-
-    private int mMaxBatchCount;
-
-    private int nPoints;
-
-    private float[] mSrcY, mDestY;
-
-    private float mBarWidth;
-    private Rect mClipBounds;
-
-    private int nBatchCount;
-
-    private Random mRandom;
-
     public BarVisualizer(Context context) {
         super(context);
     }
@@ -59,109 +43,79 @@ public class BarVisualizer extends BaseVisualizer {
     public BarVisualizer(Context context,
                          @Nullable AttributeSet attrs) {
         super(context, attrs);
+        init(context, attrs);
     }
 
     public BarVisualizer(Context context,
                          @Nullable AttributeSet attrs,
                          int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        init(context, attrs);
     }
 
-    @Override
-    protected void init() {
-        nPoints = (int) (BAR_MAX_POINTS * mDensity);
-        if (nPoints < BAR_MIN_POINTS)
-            nPoints = BAR_MIN_POINTS;
-
-        mBarWidth = -1;
-        nBatchCount = 0;
+    private void init(Context context, AttributeSet attrs) {
+        TypedArray typedArray = context.getTheme().obtainStyledAttributes(attrs,
+                R.styleable.BarVisualizer, 0, 0);
+        if (typedArray != null && typedArray.length() > 0) {
+            try {
+                setBarGap(typedArray.getDimension(R.styleable.BarVisualizer_avBarGap, getConfig().getBarGap()));
+
+                String capType = typedArray.getString(R.styleable.BarVisualizer_avBarCap);
+                if (capType != null && !capType.equals(""))
+                    setRoundCap(capType.toLowerCase().equals("round"));
+            } finally {
+                typedArray.recycle();
+            }
+        }
+    }
 
-        setAnimationSpeed(mAnimSpeed);
+    /**
+     * Sets the gap between the bars, the bars fill the rest of their space in place of
+     * the stroke width
+     *
+     * @param gap in pixels, negative to draw the bars with the stroke width
+     */
+    public void setBarGap(float gap) {
+        updateConfig(getConfig().withBarGap(gap));
+    }
 
-        mRandom = new Random();
+    /**
+     * Rounds the top of the bars, the bars keep their height
+     *
+     * @param roundCap true for round caps, false for square ones
+     */
+    public void setRoundCap(boolean roundCap) {
+        updateConfig(getConfig().withRoundCap(roundCap));
+    }
 
-        mClipBounds = new Rect();
+    private BarEngine getEngine() {
+        return (BarEngine) mEngine;
+    }
 
-        mSrcY = new float[nPoints];
-        mDestY = new float[nPoints];
+    @Override
+    protected VisualizerEngine createEngine() {
+        return new BarEngine();
+    }
 
+    @Override
+    protected void applyPaintConfig(VisualizerConfig config) {
+        super.applyPaintConfig(config);
+        mPaint.setStrokeCap(config.isRoundCap() ? Paint.Cap.ROUND : Paint.Cap.BUTT);
     }
 
     @Override
-    public void setAnimationSpeed(AnimSpeed animSpeed) {
-        super.setAnimationSpeed(animSpeed);
-        mMaxBatchCount = AVConstants.MAX_ANIM_BATCH_COUNT - mAnimSpeed.ordinal();
+    protected void onEngineConfigured(boolean isLayoutChanged) {
+        // the bar width follows the applied density and size
+        BarEngine engine = getEngine();
+        VisualizerConfig config = engine.getAppliedConfig();
+        if (config.getBarGap() >= 0)
+            mPaint.setStrokeWidth(Math.max(engine.getBarWidth() - config.getBarGap(), 1));
+        engine.setCapInset(config.isRoundCap() ? mPaint.getStrokeWidth() / 2 : 0);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-
-        if (mBarWidth == -1) {
-
-            canvas.getClipBounds(mClipBounds);
-
-            mBarWidth = canvas.getWidth() / nPoints;
-
-            //initialize points
-            for (int i = 0; i < mSrcY.length; i++) {
-                float posY;
-                if (mPositionGravity == PositionGravity.TOP)
-                    posY = mClipBounds.top;
-                else
-                    posY = mClipBounds.bottom;
-
-                mSrcY[i] = posY;
-                mDestY[i] = posY;
-            }
-        }
-
-        //create the path and draw
-        if (isVisualizationEnabled && mRawAudioBytes != null) {
-
-            if (mRawAudioBytes.length == 0) {
-                return;
-            }
-
-            //find the destination bezier point for a batch
-            if (nBatchCount == 0) {
-                float randPosY = mDestY[mRandom.nextInt(nPoints)];
-                for (int i = 0; i < mSrcY.length; i++) {
-
-                    int x = (int) Math.ceil((i + 1) * (mRawAudioBytes.length / nPoints));
-                    int t = 0;
-                    if (x < 1024)
-                        t = canvas.getHeight() +
-                                ((byte) (Math.abs(mRawAudioBytes[x]) + 128)) * canvas.getHeight() / 128;
-
-                    float posY;
-                    if (mPositionGravity == PositionGravity.TOP)
-                        posY = mClipBounds.bottom - t;
-                    else
-                        posY = mClipBounds.top + t;
-
-                    //change the source and destination y
-                    mSrcY[i] = mDestY[i];
-                    mDestY[i] = posY;
-                }
-
-                mDestY[mSrcY.length - 1] = randPosY;
-            }
-
-            //increment batch count
-            nBatchCount++;
-
-            //calculate bar position and draw
-            for (int i = 0; i < mSrcY.length; i++) {
-                float barY = mSrcY[i] + (((float) (nBatchCount) / mMaxBatchCount) * (mDestY[i] - mSrcY[i]));
-                float barX = (i * mBarWidth) + (mBarWidth / 2);
-                canvas.drawLine(barX, canvas.getHeight(), barX, barY, mPaint);
-            }
-
-            //reset the batch count
-            if (nBatchCount == mMaxBatchCount)
-                nBatchCount = 0;
-
-        }
+        mRenderer.draw(canvas, updateEngine(), mPaint);
 
         super.onDraw(canvas);
     }
@@ -3,15 +3,15 @@ package com.gauravk.audiovisualizer.visualizer;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Rect;
+import android.graphics.RadialGradient;
 import android.graphics.Shader;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
-
 import com.gauravk.audiovisualizer.base.BaseVisualizer;
+import com.gauravk.audiovisualizer.engine.CircleLineEngine;
+import com.gauravk.audiovisualizer.engine.GeometryBuffer;
+import com.gauravk.audiovisualizer.engine.VisualizerEngine;
 
 /**
  * @author maple on 2019/4/24 15:17.
@@ -19,15 +19,11 @@ import com.gauravk.audiovisualizer.base.BaseVisualizer;
  * @see 1040441325@qq.com
  */
 public class CircleLineVisualizer extends BaseVisualizer {
-    private static final int BAR_MAX_POINTS = 240;
-    private static final int BAR_MIN_POINTS = 30;
-    private Rect mClipBounds;
-    private int mPoints;
-    private int mPointRadius;
-    private float[] mSrcY;
-    private int mRadius;
+    private static final int RAY_START_COLOR = Color.parseColor("#77FF5722");
+    private static final int RAY_END_COLOR = Color.parseColor("#10FF5722");
     private Paint mGPaint;
-    private boolean drawLine;
+    // dots and bars drawn as round points and lines
+    private Paint mBarPaint;
 
     public CircleLineVisualizer(Context context) {
         super(context);
@@ -42,7 +38,7 @@ public class CircleLineVisualizer extends BaseVisualizer {
     }
 
     public boolean isDrawLine() {
-        return drawLine;
+        return getConfig().isDrawLine();
     }
 
     /**
@@ -51,91 +47,61 @@ public class CircleLineVisualizer extends BaseVisualizer {
      * @param drawLine is show drawLine
      */
     public void setDrawLine(boolean drawLine) {
-        this.drawLine = drawLine;
+        updateConfig(getConfig().withDrawLine(drawLine));
+    }
+
+    @Override
+    protected VisualizerEngine createEngine() {
+        return new CircleLineEngine();
+    }
+
+    private CircleLineEngine getEngine() {
+        return (CircleLineEngine) mEngine;
     }
 
     @Override
     protected void init() {
-        mPoints = (int) (BAR_MAX_POINTS * mDensity);
-        if (mPoints < BAR_MIN_POINTS)
-            mPoints = BAR_MIN_POINTS;
-        mSrcY = new float[mPoints];
-        mClipBounds = new Rect();
-        setAnimationSpeed(mAnimSpeed);
         mPaint.setAntiAlias(true);
         mGPaint = new Paint();
         mGPaint.setAntiAlias(true);
+        mBarPaint = new Paint();
+        mBarPaint.setAntiAlias(true);
+        mBarPaint.setStyle(Paint.Style.STROKE);
+        mBarPaint.setStrokeCap(Paint.Cap.ROUND);
     }
 
     @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        mRadius = Math.min(w, h) / 4;
-        mPointRadius = Math.abs((int) (2 * mRadius * Math.sin(Math.PI / mPoints / 3)));
-        LinearGradient lg = new LinearGradient(getWidth() / 2 + mRadius, getHeight() / 2, getWidth() / 2 + mRadius + mPointRadius * 5, getHeight() / 2
-                , Color.parseColor("#77FF5722"), Color.parseColor("#10FF5722"), Shader.TileMode.CLAMP);
-        mGPaint.setShader(lg);
+    protected void onEngineConfigured(boolean isLayoutChanged) {
+        // the gradient follows the point radius, which depends on the size and the density
+        if (!isLayoutChanged)
+            return;
+
+        // the rays point away from the center, so a radial gradient fades all of them at once
+        int radius = getEngine().getRadius();
+        float gradientRadius = radius + getEngine().getPointRadius() * 5;
+        if (gradientRadius <= 0)
+            return;
+        RadialGradient rg = new RadialGradient(getWidth() / 2, getHeight() / 2, gradientRadius,
+                new int[]{RAY_START_COLOR, RAY_START_COLOR, RAY_END_COLOR},
+                new float[]{0, radius / gradientRadius, 1}, Shader.TileMode.CLAMP);
+        mGPaint.setShader(rg);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        canvas.getClipBounds(mClipBounds);
-        updateData();
-        // draw circle's points
-        for (int i = 0; i < 360; i = i + 360 / mPoints) {
-            float cx = (float) (getWidth() / 2 + Math.cos(i * Math.PI / 180) * mRadius);
-            float cy = (float) (getHeight() / 2 - Math.sin(i * Math.PI / 180) * mRadius);
-            canvas.drawCircle(cx, cy, mPointRadius, mPaint);
+        GeometryBuffer bars = updateEngine();
+        Paint paint = mPaint;
+        if (getEngine().isStroked()) {
+            mBarPaint.setColor(mPaint.getColor());
+            mBarPaint.setStrokeWidth(getEngine().getBarStrokeWidth());
+            paint = mBarPaint;
         }
+        // draw circle's points
+        mRenderer.draw(canvas, getEngine().getDotGeometry(), paint);
         // draw lines
-        if (drawLine) drawLines(canvas);
+        mRenderer.draw(canvas, getEngine().getRayGeometry(), mGPaint);
         // draw bar
-        for (int i = 0; i < 360; i = i + 360 / mPoints) {
-            if (mSrcY[i * mPoints / 360] == 0) continue;
-            canvas.save();
-            canvas.rotate(-i, getWidth() / 2, getHeight() / 2);
-            float cx = (float) (getWidth() / 2 + mRadius);
-            float cy = (float) (getHeight() / 2);
-            canvas.drawRect(cx, cy - mPointRadius, cx + mSrcY[i * mPoints / 360],
-                    cy + mPointRadius, mPaint);
-            canvas.drawCircle(cx + mSrcY[i * mPoints / 360], cy, mPointRadius, mPaint);
-            canvas.restore();
-        }
-    }
-
-    /**
-     * Draw a translucent ray
-     *
-     * @param canvas target canvas
-     */
-    private void drawLines(Canvas canvas) {
-        int lineLen = 14 * mPointRadius;//default len,
-        for (int i = 0; i < 360; i = i + 360 / mPoints) {
-            canvas.save();
-            canvas.rotate(-i, getWidth() / 2, getHeight() / 2);
-            float cx = (float) (getWidth() / 2 + mRadius) + mSrcY[i * mPoints / 360];
-            float cy = (float) (getHeight() / 2);
-            Path path = new Path();
-            path.moveTo(cx, cy + mPointRadius);
-            path.lineTo(cx, cy - mPointRadius);
-            path.lineTo(cx + lineLen, cy);
-            canvas.drawPath(path, mGPaint);
-            canvas.restore();
-        }
-    }
-
-    private void updateData() {
-        if (isVisualizationEnabled && mRawAudioBytes != null) {
-            if (mRawAudioBytes.length == 0) return;
-            for (int i = 0; i < mSrcY.length; i++) {
-                int x = (int) Math.ceil((i + 1) * (mRawAudioBytes.length / mPoints));
-                int t = 0;
-                if (x < 1024) {
-                    t = ((byte) (Math.abs(mRawAudioBytes[x]) + 128)) * mRadius / 128;
-                }
-                mSrcY[i] = -t;
-            }
-        }
+        mRenderer.draw(canvas, bars, paint);
     }
 }
@@ -0,0 +1,604 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.visualizer;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.TextureView;
+import android.view.View;
+
+import com.gauravk.audiovisualizer.base.BaseVisualizer;
+import com.gauravk.audiovisualizer.model.AnimSpeed;
+import com.gauravk.audiovisualizer.model.AudioLevels;
+import com.gauravk.audiovisualizer.model.BandReduction;
+import com.gauravk.audiovisualizer.model.BandScale;
+import com.gauravk.audiovisualizer.model.DataSource;
+import com.gauravk.audiovisualizer.model.FftWindow;
+import com.gauravk.audiovisualizer.model.FrameStats;
+import com.gauravk.audiovisualizer.model.PaintStyle;
+import com.gauravk.audiovisualizer.model.PositionGravity;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hosts any {@link BaseVisualizer} and draws it on a dedicated render thread into a {@link TextureView},
+ * so heavy visualizations do not compete with the UI thread for the frame time.
+ * <p>
+ * The hosted visualizer is not attached to the view hierarchy, it is laid out to the size of the texture
+ * and configured through the same methods as a regular visualizer.
+ */
+public class VisualizerTextureView extends TextureView
+        implements TextureView.SurfaceTextureListener, BaseVisualizer.RenderCallback {
+
+    private static final String RENDER_THREAD_NAME = "AudioVisualizerRender";
+
+    private BaseVisualizer mVisualizer;
+
+    private HandlerThread mRenderThread;
+    private volatile Handler mRenderHandler;
+    // paces the redraws of the hosted visualizer on the render thread, set once the thread runs
+    private Choreographer mRenderChoreographer;
+    private final AtomicBoolean isRenderPending = new AtomicBoolean();
+
+    private int mSurfaceWidth, mSurfaceHeight;
+    private boolean isSurfaceAvailable;
+
+    private final Runnable mRenderRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isRenderPending.set(false);
+            render();
+        }
+    };
+
+    public VisualizerTextureView(Context context) {
+        super(context);
+        init();
+    }
+
+    public VisualizerTextureView(Context context, BaseVisualizer visualizer) {
+        super(context);
+        init();
+        setVisualizer(visualizer);
+    }
+
+    public VisualizerTextureView(Context context,
+                                 @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public VisualizerTextureView(Context context,
+                                 @Nullable AttributeSet attrs,
+                                 int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    /**
+     * Sets the visualizer to be drawn on the render thread
+     *
+     * @param visualizer to be hosted, it must not be attached to a window
+     */
+    public void setVisualizer(BaseVisualizer visualizer) {
+        if (mVisualizer != null) {
+            mVisualizer.setRenderCallback(null);
+            mVisualizer.setFrameChoreographer(null);
+        }
+
+        mVisualizer = visualizer;
+        mVisualizer.setRenderCallback(this);
+        mVisualizer.setFrameChoreographer(mRenderChoreographer);
+        updateHostVisibility();
+        layoutVisualizer();
+        requestRender();
+    }
+
+    /**
+     * Get the hosted visualizer, to access the options of a specific visualizer
+     *
+     * @return the hosted visualizer
+     */
+    public BaseVisualizer getVisualizer() {
+        return mVisualizer;
+    }
+
+    /**
+     * Set color to visualizer with color resource id.
+     *
+     * @param color color resource id.
+     */
+    public void setColor(int color) {
+        if (mVisualizer != null)
+            mVisualizer.setColor(color);
+        requestRender();
+    }
+
+    /**
+     * Set the density of the visualizer
+     *
+     * @param density density for visualization
+     */
+    public void setDensity(float density) {
+        if (mVisualizer != null)
+            mVisualizer.setDensity(density);
+        requestRender();
+    }
+
+    /**
+     * Sets the paint style of the visualizer
+     *
+     * @param paintStyle style of the visualizer.
+     */
+    public void setPaintStyle(PaintStyle paintStyle) {
+        if (mVisualizer != null)
+            mVisualizer.setPaintStyle(paintStyle);
+        requestRender();
+    }
+
+    /**
+     * Sets the position of the Visualization{@link PositionGravity}
+     *
+     * @param positionGravity position of the Visualization
+     */
+    public void setPositionGravity(PositionGravity positionGravity) {
+        if (mVisualizer != null)
+            mVisualizer.setPositionGravity(positionGravity);
+        requestRender();
+    }
+
+    /**
+     * Sets the Animation speed of the visualization{@link AnimSpeed}
+     *
+     * @param animSpeed speed of the animation
+     */
+    public void setAnimationSpeed(AnimSpeed animSpeed) {
+        if (mVisualizer != null)
+            mVisualizer.setAnimationSpeed(animSpeed);
+        requestRender();
+    }
+
+    /**
+     * Sets the time constants of the smoothing of the bars and the wave, which follow every captured frame
+     *
+     * @param attackMillis  time constant of rising magnitudes, 0 to derive it from the animation speed
+     * @param releaseMillis time constant of falling magnitudes, 0 to derive it from the animation speed
+     */
+    public void setSmoothing(long attackMillis, long releaseMillis) {
+        if (mVisualizer != null)
+            mVisualizer.setSmoothing(attackMillis, releaseMillis);
+        requestRender();
+    }
+
+    /**
+     * Sets the source of the visualized data{@link DataSource}
+     *
+     * @param dataSource source of the visualized data
+     */
+    public void setDataSource(DataSource dataSource) {
+        if (mVisualizer != null)
+            mVisualizer.setDataSource(dataSource);
+        requestRender();
+    }
+
+    /**
+     * Sets how the waveform samples which fall into a point are aggregated{@link BandReduction}
+     *
+     * @param bandReduction peak, mean absolute or rms of the samples
+     */
+    public void setBandReduction(BandReduction bandReduction) {
+        if (mVisualizer != null)
+            mVisualizer.setBandReduction(bandReduction);
+        requestRender();
+    }
+
+    /**
+     * Sets how the spectrum bins are grouped into the points{@link BandScale}
+     *
+     * @param bandScale linear, log, octave or mel bands
+     */
+    public void setBandScale(BandScale bandScale) {
+        if (mVisualizer != null)
+            mVisualizer.setBandScale(bandScale);
+        requestRender();
+    }
+
+    /**
+     * Sets the sample rate of the bytes set with {@link #setRawAudioBytes(byte[])} and
+     * {@link #setRawFftBytes(byte[])}
+     *
+     * @param sampleRate in Hz
+     */
+    public void setSampleRate(int sampleRate) {
+        if (mVisualizer != null)
+            mVisualizer.setSampleRate(sampleRate);
+    }
+
+    /**
+     * Sets the width of the outline {@link PaintStyle}
+     *
+     * @param width style of the visualizer.
+     */
+    public void setStrokeWidth(float width) {
+        if (mVisualizer != null)
+            mVisualizer.setStrokeWidth(width);
+        requestRender();
+    }
+
+    /**
+     * Sets the audio bytes to be visualized form {@link android.media.audiofx.Visualizer} or other sources
+     *
+     * @param bytes of the raw bytes of music
+     */
+    public void setRawAudioBytes(byte[] bytes) {
+        if (mVisualizer != null)
+            mVisualizer.setRawAudioBytes(bytes);
+    }
+
+    /**
+     * Sets the window applied to the samples set with {@link #setRawAudioBytes(byte[])} before
+     * computing their spectrum
+     *
+     * @param window to apply, {@link FftWindow#HANN} by default
+     */
+    public void setFftWindow(FftWindow window) {
+        if (mVisualizer != null)
+            mVisualizer.setFftWindow(window);
+    }
+
+    /**
+     * Sets the FFT bytes to be visualized, used with {@link DataSource#SPECTRUM}
+     *
+     * @param bytes of the fft of the music
+     */
+    public void setRawFftBytes(byte[] bytes) {
+        if (mVisualizer != null)
+            mVisualizer.setRawFftBytes(bytes);
+    }
+
+    /**
+     * Sets the audio session id for the currently playing audio
+     *
+     * @param audioSessionId of the media to be visualised
+     */
+    public void setAudioSessionId(int audioSessionId) {
+        if (mVisualizer != null)
+            mVisualizer.setAudioSessionId(audioSessionId);
+    }
+
+    /**
+     * Sets the number of samples to capture, rounded up to a size supported by the effect
+     *
+     * @param captureSize number of samples, 0 to derive it from the points of the visualizer
+     */
+    public void setCaptureSize(int captureSize) {
+        if (mVisualizer != null)
+            mVisualizer.setCaptureSize(captureSize);
+    }
+
+    /**
+     * Sets the capture rate, visualizers of the same session capture at the highest requested rate
+     *
+     * @param captureRate in milliHertz, 0 to adapt it to the draw cost and the display refresh rate
+     */
+    public void setCaptureRate(int captureRate) {
+        if (mVisualizer != null)
+            mVisualizer.setCaptureRate(captureRate);
+    }
+
+    /**
+     * Sets whether silent frames and frames close to the last drawn one are dropped without a redraw
+     *
+     * @param skip false to redraw every captured frame
+     */
+    public void setSkipUnchangedFrames(boolean skip) {
+        if (mVisualizer != null)
+            mVisualizer.setSkipUnchangedFrames(skip);
+    }
+
+    /**
+     * Enables the recording of the frame statistics, see {@link FrameStats}. The draw time of a
+     * hosted visualizer is the time the render thread takes to produce the frame.
+     *
+     * @param enabled true to record the statistics, they are reset when disabled
+     */
+    public void setFrameStatsEnabled(boolean enabled) {
+        if (mVisualizer != null)
+            mVisualizer.setFrameStatsEnabled(enabled);
+    }
+
+    /**
+     * Sets the listener which receives the frame statistics, it is called on the render thread
+     *
+     * @param listener     to receive the statistics, null to stop reporting
+     * @param reportFrames number of drawn frames between two reports
+     */
+    public void setOnFrameStatsListener(@Nullable BaseVisualizer.OnFrameStatsListener listener, int reportFrames) {
+        if (mVisualizer != null)
+            mVisualizer.setOnFrameStatsListener(listener, reportFrames);
+    }
+
+    /**
+     * Copies the frame statistics recorded since the last report or reset
+     *
+     * @param stats to copy into
+     * @return false if there is no visualizer or the statistics are not enabled
+     */
+    public boolean getFrameStats(FrameStats stats) {
+        return mVisualizer != null && mVisualizer.getFrameStats(stats);
+    }
+
+    /**
+     * Resets the frame statistics
+     */
+    public void resetFrameStats() {
+        if (mVisualizer != null)
+            mVisualizer.resetFrameStats();
+    }
+
+    /**
+     * Enables the levels of the audio, see {@link AudioLevels}
+     *
+     * @param enabled true to measure the levels, they are reset when disabled
+     */
+    public void setLevelsEnabled(boolean enabled) {
+        if (mVisualizer != null)
+            mVisualizer.setLevelsEnabled(enabled);
+    }
+
+    /**
+     * Sets the listener which receives the levels of each captured frame, on the capture thread
+     *
+     * @param listener to receive the levels, null to stop reporting
+     */
+    public void setOnAudioLevelsListener(@Nullable BaseVisualizer.OnAudioLevelsListener listener) {
+        if (mVisualizer != null)
+            mVisualizer.setOnAudioLevelsListener(listener);
+    }
+
+    /**
+     * Copies the latest levels of the audio
+     *
+     * @param levels to copy into
+     * @return false if there is no visualizer or the levels are not enabled
+     */
+    public boolean getAudioLevels(AudioLevels levels) {
+        return mVisualizer != null && mVisualizer.getAudioLevels(levels);
+    }
+
+    /**
+     * Sets the listener which is notified of the onsets of the audio, on the capture thread
+     *
+     * @param listener to receive the onsets, null to stop reporting
+     */
+    public void setOnOnsetListener(@Nullable BaseVisualizer.OnOnsetListener listener) {
+        if (mVisualizer != null)
+            mVisualizer.setOnOnsetListener(listener);
+    }
+
+    /**
+     * Sets how far the energy of a frame must rise above its recent average to be an onset
+     *
+     * @param sensitivity in standard deviations of the recent rises, lower detects more onsets
+     */
+    public void setOnsetSensitivity(float sensitivity) {
+        if (mVisualizer != null)
+            mVisualizer.setOnsetSensitivity(sensitivity);
+    }
+
+    /**
+     * Sets how much the visualizers which react to onsets grow on an onset of the audio
+     *
+     * @param kick fraction of the radius added by an onset of full strength, 0 to ignore the onsets
+     */
+    public void setOnsetKick(float kick) {
+        if (mVisualizer != null)
+            mVisualizer.setOnsetKick(kick);
+        requestRender();
+    }
+
+    /**
+     * Releases the visualizer
+     */
+    public void release() {
+        if (mVisualizer != null)
+            mVisualizer.release();
+    }
+
+    /**
+     * Enable Visualization
+     */
+    public void show() {
+        if (mVisualizer != null)
+            mVisualizer.show();
+        requestRender();
+    }
+
+    /**
+     * Disable Visualization
+     */
+    public void hide() {
+        if (mVisualizer != null)
+            mVisualizer.hide();
+        requestRender();
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        mSurfaceWidth = width;
+        mSurfaceHeight = height;
+        isSurfaceAvailable = true;
+        layoutVisualizer();
+        startRenderThread();
+        updateHostVisibility();
+        requestRender();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        mSurfaceWidth = width;
+        mSurfaceHeight = height;
+        layoutVisualizer();
+        requestRender();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        isSurfaceAvailable = false;
+        updateHostVisibility();
+        stopRenderThread();
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+
+    @Override
+    public void onRedrawRequested(BaseVisualizer visualizer) {
+        requestRender();
+    }
+
+    private void startRenderThread() {
+        if (mRenderThread != null)
+            return;
+
+        mRenderThread = new HandlerThread(RENDER_THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+        mRenderThread.start();
+        mRenderHandler = new Handler(mRenderThread.getLooper());
+
+        //the choreographer of a thread can only be obtained on it, it is handed to the visualizer on the main thread
+        final HandlerThread renderThread = mRenderThread;
+        mRenderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final Choreographer choreographer = Choreographer.getInstance();
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mRenderThread != renderThread)
+                            return;
+                        mRenderChoreographer = choreographer;
+                        if (mVisualizer != null)
+                            mVisualizer.setFrameChoreographer(choreographer);
+                    }
+                });
+            }
+        });
+    }
+
+    private void stopRenderThread() {
+        if (mRenderThread == null)
+            return;
+
+        mRenderChoreographer = null;
+        if (mVisualizer != null)
+            mVisualizer.setFrameChoreographer(null);
+
+        mRenderHandler = null;
+        mRenderThread.quit();
+        try {
+            //the surface is released after this callback, wait for the current frame
+            mRenderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mRenderThread = null;
+        isRenderPending.set(false);
+    }
+
+    /**
+     * Schedules a frame on the render thread, requests are coalesced until the frame is drawn
+     */
+    private void requestRender() {
+        Handler renderHandler = mRenderHandler;
+        if (renderHandler != null && mVisualizer != null && isRenderPending.compareAndSet(false, true))
+            renderHandler.post(mRenderRunnable);
+    }
+
+    private void render() {
+        BaseVisualizer visualizer = mVisualizer;
+        if (visualizer == null)
+            return;
+
+        long renderStartNanos = System.nanoTime();
+        Canvas canvas = lockCanvas();
+        if (canvas == null)
+            return;
+
+        try {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            //same lock as layoutVisualizer(), so the size does not change during a draw, the configuration
+            //and the paint options go through the snapshot of the visualizer and need no lock
+            synchronized (visualizer) {
+                visualizer.draw(canvas);
+            }
+        } finally {
+            unlockCanvasAndPost(canvas);
+        }
+        //the whole cost of the frame, the capture rate of the visualizer adapts to it
+        visualizer.reportRenderTime(System.nanoTime() - renderStartNanos);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateHostVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateHostVisibility(visibility);
+    }
+
+    private void updateHostVisibility() {
+        updateHostVisibility(getWindowVisibility());
+    }
+
+    /**
+     * The hosted visualizer suspends its capture while the texture can not be seen
+     */
+    private void updateHostVisibility(int windowVisibility) {
+        if (mVisualizer != null)
+            mVisualizer.setHostVisible(isSurfaceAvailable && windowVisibility == VISIBLE && isShown());
+    }
+
+    private void layoutVisualizer() {
+        if (mVisualizer == null || mSurfaceWidth == 0 || mSurfaceHeight == 0)
+            return;
+
+        synchronized (mVisualizer) {
+            mVisualizer.measure(MeasureSpec.makeMeasureSpec(mSurfaceWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mSurfaceHeight, MeasureSpec.EXACTLY));
+            mVisualizer.layout(0, 0, mSurfaceWidth, mSurfaceHeight);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.gauravk.audiovisualizer.engine;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.BandScale;
+import com.gauravk.audiovisualizer.model.DataSource;
+import com.gauravk.audiovisualizer.model.PaintStyle;
+import com.gauravk.audiovisualizer.model.VisualizerConfig;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the visualizer engines, which run on a plain JVM.
+ */
+public class VisualizerEngineTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+
+    private static AudioFrame createFrame() {
+        byte[] waveform = new byte[1024];
+        for (int i = 0; i < waveform.length; i++)
+            waveform[i] = (byte) (128 + 100 * Math.sin(i * 2 * Math.PI / 64));
+
+        AudioFrame frame = new AudioFrame();
+        frame.setWaveform(waveform);
+        frame.captureTimeNanos = 1000000L;
+        frame.captureIntervalNanos = 50000000L;
+        return frame;
+    }
+
+    @Test
+    public void bar_emitsOneLinePerPoint() {
+        BarEngine engine = new BarEngine();
+        engine.setSize(WIDTH, HEIGHT);
+
+        assertTrue(engine.update(createFrame(), 2000000L));
+        assertEquals(engine.getPoints() * 4, engine.getGeometry().getLineCoordCount());
+    }
+
+    @Test
+    public void bar_settlesOnFrame() {
+        BarEngine engine = new BarEngine();
+        engine.setSmoothing(40, 150);
+        engine.setSize(WIDTH, HEIGHT);
+        AudioFrame frame = createFrame();
+
+        long frameTime = 2000000L;
+        assertTrue(engine.update(frame, frameTime));
+        for (int i = 0; i < 120 && engine.update(frame, frameTime); i++)
+            frameTime += 16000000L;
+        assertFalse(engine.update(frame, frameTime));
+    }
+
+    @Test
+    public void wave_closesFilledPath() {
+        WaveEngine engine = new WaveEngine();
+        engine.setPaintStyle(PaintStyle.FILL);
+        engine.setSize(WIDTH, HEIGHT);
+        engine.update(createFrame(), 2000000L);
+
+        GeometryBuffer geometry = engine.getGeometry();
+        int[] ops = geometry.getPathOps();
+        int count = geometry.getPathOpCount();
+        assertEquals(GeometryBuffer.OP_MOVE, ops[0]);
+        assertEquals(GeometryBuffer.OP_CLOSE, ops[count - 1]);
+        // move, one cubic per segment, two lines and close
+        assertEquals(1 + (engine.getPoints() - 1) + 3, count);
+    }
+
+    @Test
+    public void blob_staysWithinView() {
+        BlobEngine engine = new BlobEngine();
+        engine.setSize(WIDTH, HEIGHT);
+        engine.update(createFrame(), 0);
+
+        GeometryBuffer geometry = engine.getGeometry();
+        float[] coords = geometry.getPathCoords();
+        int nCoords = 2 + 6 * engine.getPoints();
+        for (int i = 0; i < nCoords; i += 2) {
+            assertTrue(coords[i] > 0 && coords[i] < WIDTH);
+            assertTrue(coords[i + 1] > 0 && coords[i + 1] < HEIGHT);
+        }
+    }
+
+    @Test
+    public void noFrame_emitsNothing() {
+        VisualizerEngine[] engines = {new BarEngine(), new WaveEngine(), new BlastEngine(), new BlobEngine()};
+        for (VisualizerEngine engine : engines) {
+            engine.setSize(WIDTH, HEIGHT);
+            assertFalse(engine.update(null, 0));
+            assertTrue(engine.getGeometry().isEmpty());
+        }
+    }
+
+    @Test
+    public void circleLine_keepsRingWithoutFrame() {
+        CircleLineEngine engine = new CircleLineEngine();
+        engine.setSize(WIDTH, HEIGHT);
+        engine.update(null, 0);
+
+        assertEquals(2 * engine.getPoints(), engine.getDotGeometry().getPointCoordCount());
+        assertTrue(engine.getGeometry().isEmpty());
+        assertTrue(engine.getRayGeometry().isEmpty());
+    }
+
+    @Test
+    public void circleLine_drawsRaysFromConfig() {
+        CircleLineEngine engine = new CircleLineEngine();
+        engine.setSize(WIDTH, HEIGHT);
+        engine.setConfig(VisualizerConfig.DEFAULT.withDrawLine(true));
+        engine.update(createFrame(), 0);
+        assertTrue(engine.getRayGeometry().isEmpty());
+
+        engine.applyPendingConfig();
+        engine.update(createFrame(), 0);
+        assertFalse(engine.getRayGeometry().isEmpty());
+    }
+
+    @Test
+    public void hiFi_emitsSpokePerPoint() {
+        HiFiEngine engine = new HiFiEngine();
+        engine.setDataSource(DataSource.WAVEFORM);
+        engine.setSize(WIDTH, HEIGHT);
+        engine.update(createFrame(), 0);
+
+        assertEquals(engine.getPoints() * 4, engine.getGeometry().getLineCoordCount());
+    }
+
+    @Test
+    public void config_appliedAtFrameStart() {
+        VisualizerEngine[] engines = {new BarEngine(), new WaveEngine(), new BlastEngine(), new BlobEngine(),
+                new CircleLineEngine(), new HiFiEngine()};
+        for (VisualizerEngine engine : engines) {
+            engine.setSize(WIDTH, HEIGHT);
+            int points = engine.getPoints();
+
+            engine.setConfig(VisualizerConfig.DEFAULT.withDensity(1));
+            assertEquals(points, engine.getPoints());
+            assertTrue(engine.applyPendingConfig());
+            assertFalse(engine.applyPendingConfig());
+            engine.update(createFrame(), 0);
+            assertFalse(engine.getGeometry().isEmpty());
+        }
+    }
+
+    @Test
+    public void paintOptions_appliedWithSnapshot() {
+        BarEngine engine = new BarEngine();
+        VisualizerConfig config = VisualizerConfig.DEFAULT.withColor(0xFF00FF00).withStrokeWidth(4)
+                .withBarGap(2).withRoundCap(true);
+        engine.setConfig(config);
+        assertSame(VisualizerConfig.DEFAULT, engine.getAppliedConfig());
+
+        engine.applyPendingConfig();
+        assertSame(config, engine.getAppliedConfig());
+        assertEquals(0xFF00FF00, engine.getAppliedConfig().getColor());
+        assertEquals(2, engine.getAppliedConfig().getBarGap(), 0);
+        assertTrue(engine.getAppliedConfig().isRoundCap());
+
+        // no pending configuration keeps the applied one
+        engine.applyPendingConfig();
+        assertSame(config, engine.getAppliedConfig());
+    }
+
+    @Test
+    public void blastKick_mapsFrameOnce() {
+        final int[] mappings = new int[1];
+        BlastEngine engine = new BlastEngine() {
+            @Override
+            protected void computeMagnitudes(AudioFrame frame, float[] magnitudes, int count) {
+                mappings[0]++;
+                super.computeMagnitudes(frame, magnitudes, count);
+            }
+        };
+        engine.setSize(WIDTH, HEIGHT);
+        engine.setOnsetKick(0.5f);
+        AudioFrame frame = createFrame();
+        frame.onsetTimeNanos = frame.captureTimeNanos;
+        frame.onsetStrength = 1;
+
+        // the kick decays over redraws of the same captured frame
+        long frameTime = frame.captureTimeNanos;
+        assertTrue(engine.update(frame, frameTime));
+        float kickedX = engine.getGeometry().getPathCoords()[0];
+        assertTrue(engine.update(frame, frameTime + 100000000L));
+        assertTrue(engine.getGeometry().getPathCoords()[0] < kickedX);
+        assertEquals(1, mappings[0]);
+
+        frame.captureTimeNanos += 50000000L;
+        engine.update(frame, frameTime + 150000000L);
+        assertEquals(2, mappings[0]);
+    }
+
+    @Test
+    public void logBands_spreadBassOverPoints() {
+        // a single loud bin in the lowest octaves
+        byte[] fft = new byte[1024];
+        fft[4] = 127;
+        AudioFrame frame = new AudioFrame();
+        frame.setFft(fft);
+
+        BarEngine engine = new BarEngine();
+        engine.setDataSource(DataSource.SPECTRUM);
+        float[] magnitudes = new float[64];
+
+        engine.computeMagnitudes(frame, magnitudes, magnitudes.length);
+        int linearPoints = countNonZero(magnitudes);
+        engine.setBandScale(BandScale.LOG);
+        engine.computeMagnitudes(frame, magnitudes, magnitudes.length);
+        assertEquals(1, linearPoints);
+        assertTrue(countNonZero(magnitudes) > linearPoints);
+    }
+
+    private static int countNonZero(float[] values) {
+        int count = 0;
+        for (float value : values) {
+            if (value > 0)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,58 @@
+package com.gauravk.audiovisualizer.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the frame statistics reported by the visualizers and their texture view host.
+ */
+public class FrameStatsTest {
+
+    private static final long MILLIS = 1000000L;
+    private static final long BUDGET = 16 * MILLIS;
+
+    @Test
+    public void draws_countOverBudgetFrames() {
+        FrameStats stats = new FrameStats();
+        stats.recordDraw(4 * MILLIS, BUDGET);
+        stats.recordDraw(20 * MILLIS, BUDGET);
+        stats.recordDraw(BUDGET, BUDGET);
+
+        assertEquals(3, stats.getDrawnFrames());
+        assertEquals(1, stats.getOverBudgetFrames());
+        assertEquals(20 * MILLIS, stats.getDrawTime().getMaxNanos());
+    }
+
+    @Test
+    public void replacedCaptures_areSkipped() {
+        FrameStats stats = new FrameStats();
+        stats.recordCaptured(3);
+        stats.recordCaptureDrawn(5 * MILLIS);
+        stats.recordCaptured(1);
+        stats.recordCaptureDrawn(7 * MILLIS);
+
+        assertEquals(4, stats.getCapturedFrames());
+        assertEquals(2, stats.getSkippedCaptureFrames());
+        assertEquals(2, stats.getCaptureLatency().getCount());
+    }
+
+    @Test
+    public void copy_isIndependentOfReset() {
+        FrameStats stats = new FrameStats();
+        stats.recordCaptured(2);
+        stats.recordCaptureDrawn(3 * MILLIS);
+        stats.recordDraw(20 * MILLIS, BUDGET);
+
+        FrameStats copy = new FrameStats();
+        stats.copyTo(copy);
+        stats.reset();
+
+        assertEquals(0, stats.getDrawnFrames());
+        assertEquals(0, stats.getCapturedFrames());
+        assertEquals(1, copy.getDrawnFrames());
+        assertEquals(1, copy.getOverBudgetFrames());
+        assertEquals(1, copy.getSkippedCaptureFrames());
+        assertEquals(3 * MILLIS, copy.getCaptureLatency().getMaxNanos(), MILLIS / 10);
+    }
+}
@@ -0,0 +1,104 @@
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.BandScale;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the band tables at the bin counts the visualizers actually capture.
+ */
+public class BandMapperTest {
+
+    private static final int POINTS = 30;
+
+    // default capture size of a 30 point visualizer and the largest one Visualizer supports
+    private static final int DEFAULT_BINS = SpectrumUtils.getBinCount(POINTS * AVConstants.CAPTURE_SAMPLES_PER_POINT);
+    private static final int MAX_CAPTURE_BINS = SpectrumUtils.getBinCount(1024);
+
+    @Test
+    public void defaultBins_collapseLowLogBands() {
+        float[] bands = mapBinIndices(BandScale.LOG, DEFAULT_BINS);
+        for (int b = 0; b < 12; b++)
+            assertEquals(1, bands[b], 1e-6);
+    }
+
+    @Test
+    public void minFftSize_givesNarrowestBandABin() {
+        for (BandScale scale : new BandScale[]{BandScale.LOG, BandScale.OCTAVE, BandScale.MEL}) {
+            int size = BandMapper.getMinFftSize(scale, AVConstants.DEFAULT_SAMPLE_RATE, POINTS);
+            assertEquals(0, size & (size - 1));
+            assertTrue(scale + " " + size, size > POINTS * AVConstants.CAPTURE_SAMPLES_PER_POINT);
+
+            // every band reads its own bins, so no two bands are equal
+            float[] bands = mapBinIndices(scale, SpectrumUtils.getBinCount(size));
+            for (int b = 1; b < POINTS; b++)
+                assertTrue(scale + " band " + b, bands[b] > bands[b - 1]);
+        }
+    }
+
+    @Test
+    public void cappedCapture_separatesMoreLowBands() {
+        int size = BandMapper.getMinFftSize(BandScale.LOG, AVConstants.DEFAULT_SAMPLE_RATE, POINTS);
+        assertTrue(size >= 1024);
+
+        assertTrue(countDistinct(mapBinIndices(BandScale.LOG, MAX_CAPTURE_BINS))
+                > countDistinct(mapBinIndices(BandScale.LOG, DEFAULT_BINS)));
+    }
+
+    @Test
+    public void minFftSize_isCapped() {
+        assertEquals(8192, BandMapper.getMinFftSize(BandScale.LOG, AVConstants.DEFAULT_SAMPLE_RATE, 4000));
+    }
+
+    @Test
+    public void octaveBands_startAtMinFrequency() {
+        int bins = SpectrumUtils.getBinCount(1 << 13);
+        // the lowest bin which overlaps the minimum frequency
+        float minBin = AVConstants.MIN_BAND_FREQUENCY / (AVConstants.DEFAULT_SAMPLE_RATE / 2f / (bins - 1)) - 0.5f;
+        for (int count = 1; count <= 64; count++) {
+            float[] magnitudes = new float[bins];
+            for (int k = 0; k < bins; k++)
+                magnitudes[k] = k;
+            float[] bands = new float[count];
+            BandMapper.get(BandScale.OCTAVE, bins, AVConstants.DEFAULT_SAMPLE_RATE, count).map(magnitudes, bands);
+
+            assertTrue(count + " bands start at " + bands[0], bands[0] >= minBin);
+            for (int b = 1; b < count; b++)
+                assertTrue(count + " band " + b, bands[b] > bands[b - 1]);
+        }
+    }
+
+    @Test
+    public void cache_sharesRecentTables() {
+        BandMapper mapper = BandMapper.get(BandScale.LOG, DEFAULT_BINS, AVConstants.DEFAULT_SAMPLE_RATE, POINTS);
+        assertSame(mapper, BandMapper.get(BandScale.LOG, DEFAULT_BINS, AVConstants.DEFAULT_SAMPLE_RATE, POINTS));
+
+        // resizing through many band counts drops the unused tables
+        for (int bands = 1; bands <= 64; bands++)
+            BandMapper.get(BandScale.MEL, DEFAULT_BINS, AVConstants.DEFAULT_SAMPLE_RATE, bands);
+        assertNotSame(mapper, BandMapper.get(BandScale.LOG, DEFAULT_BINS, AVConstants.DEFAULT_SAMPLE_RATE, POINTS));
+    }
+
+    /**
+     * Maps a spectrum whose magnitudes are their bin indices, each band is the mean index it reads
+     */
+    private static float[] mapBinIndices(BandScale scale, int bins) {
+        float[] magnitudes = new float[bins];
+        for (int k = 0; k < bins; k++)
+            magnitudes[k] = k;
+        float[] bands = new float[POINTS];
+        BandMapper.get(scale, bins, AVConstants.DEFAULT_SAMPLE_RATE, POINTS).map(magnitudes, bands);
+        return bands;
+    }
+
+    private static int countDistinct(float[] bands) {
+        int count = 1;
+        for (int b = 1; b < bands.length; b++) {
+            if (bands[b] != bands[b - 1])
+                count++;
+        }
+        return count;
+    }
+}
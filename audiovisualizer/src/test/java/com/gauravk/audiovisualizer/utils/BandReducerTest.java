@@ -0,0 +1,67 @@
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.BandReduction;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the reduction of waveform samples to bands.
+ */
+public class BandReducerTest {
+
+    private static final float EPSILON = 1e-5f;
+
+    // one band of a square wave and one of a lone spike
+    private static final float[] SAMPLES = {0.5f, -0.5f, 0.5f, -0.5f, 0, 0, -1, 0};
+
+    @Test
+    public void peak_takesLargestAbsoluteSample() {
+        float[] bands = new float[2];
+        BandReducer.reduce(BandReduction.PEAK, SAMPLES, SAMPLES.length, bands, 2);
+
+        assertEquals(0.5f, bands[0], EPSILON);
+        assertEquals(1, bands[1], EPSILON);
+    }
+
+    @Test
+    public void meanAbs_averagesMagnitudes() {
+        float[] bands = new float[2];
+        BandReducer.reduce(BandReduction.MEAN_ABS, SAMPLES, SAMPLES.length, bands, 2);
+
+        assertEquals(0.5f, bands[0], EPSILON);
+        assertEquals(0.25f, bands[1], EPSILON);
+    }
+
+    @Test
+    public void rms_weighsLoudSamples() {
+        float[] bands = new float[2];
+        BandReducer.reduce(BandReduction.RMS, SAMPLES, SAMPLES.length, bands, 2);
+
+        // a square wave has its peak as rms, a spike is between its mean and its peak
+        assertEquals(0.5f, bands[0], EPSILON);
+        assertEquals(0.5f, bands[1], EPSILON);
+    }
+
+    @Test
+    public void moreBandsThanSamples_shareSamples() {
+        float[] samples = {0.25f, -0.75f};
+        float[] bands = new float[4];
+        BandReducer.reduce(BandReduction.PEAK, samples, samples.length, bands, 4);
+
+        assertEquals(0.25f, bands[0], EPSILON);
+        assertEquals(0.25f, bands[1], EPSILON);
+        assertEquals(0.75f, bands[2], EPSILON);
+        assertEquals(0.75f, bands[3], EPSILON);
+    }
+
+    @Test
+    public void noSamples_clearsBands() {
+        float[] bands = {1, 1, 1};
+        BandReducer.reduce(BandReduction.RMS, new float[0], 0, bands, 3);
+
+        for (float band : bands)
+            assertEquals(0, band, 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.gauravk.audiovisualizer.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the attack and release smoothing of the bands.
+ */
+public class BandSmootherTest {
+
+    private static final float EPSILON = 1e-4f;
+    private static final long MILLIS = 1000000L;
+    private static final long FRAME_NANOS = 16 * MILLIS;
+
+    private static BandSmoother createSmoother() {
+        BandSmoother smoother = new BandSmoother(1);
+        smoother.setTimeConstants(40 * MILLIS, 150 * MILLIS);
+        smoother.reset(1);
+        return smoother;
+    }
+
+    private static float expected(float from, float to, long elapsedNanos, long timeConstantNanos) {
+        return to + (from - to) * (float) Math.exp(-(double) elapsedNanos / timeConstantNanos);
+    }
+
+    @Test
+    public void rise_followsAttack() {
+        BandSmoother smoother = createSmoother();
+        smoother.update(1000 * MILLIS);
+
+        smoother.getTargets()[0] = 1;
+        smoother.setTargetTime(1000 * MILLIS);
+        assertTrue(smoother.update(1000 * MILLIS + FRAME_NANOS));
+        assertEquals(expected(0, 1, FRAME_NANOS, 40 * MILLIS), smoother.getValues()[0], EPSILON);
+    }
+
+    @Test
+    public void fall_followsRelease() {
+        BandSmoother smoother = createSmoother();
+        long time = 1000 * MILLIS;
+        smoother.getTargets()[0] = 1;
+        smoother.setTargetTime(time);
+        while (smoother.update(time))
+            time += FRAME_NANOS;
+
+        smoother.getTargets()[0] = 0;
+        smoother.setTargetTime(time);
+        smoother.update(time + FRAME_NANOS);
+        assertEquals(expected(1, 0, FRAME_NANOS, 150 * MILLIS), smoother.getValues()[0], EPSILON);
+    }
+
+    @Test
+    public void newTargetAfterIdle_startsFromItsArrival() {
+        BandSmoother smoother = createSmoother();
+        assertFalse(smoother.update(1000 * MILLIS));
+        assertFalse(smoother.update(1000 * MILLIS + FRAME_NANOS));
+
+        // no update while idle, the next target arrives 100ms later
+        long arrival = 1000 * MILLIS + FRAME_NANOS + 100 * MILLIS;
+        smoother.getTargets()[0] = 1;
+        smoother.setTargetTime(arrival);
+        smoother.update(arrival + FRAME_NANOS);
+        assertEquals(expected(0, 1, FRAME_NANOS, 40 * MILLIS), smoother.getValues()[0], EPSILON);
+    }
+
+    @Test
+    public void movingBands_keepFrameInterval() {
+        BandSmoother smoother = createSmoother();
+        long time = 1000 * MILLIS;
+        smoother.update(time);
+        smoother.getTargets()[0] = 1;
+        smoother.setTargetTime(time);
+        smoother.update(time + FRAME_NANOS);
+        float value = smoother.getValues()[0];
+
+        // a new target arriving mid-frame does not shorten the step of a moving band
+        smoother.getTargets()[0] = 0.5f;
+        smoother.setTargetTime(time + FRAME_NANOS + 10 * MILLIS);
+        smoother.update(time + 2 * FRAME_NANOS);
+        assertEquals(expected(value, 0.5f, FRAME_NANOS, 40 * MILLIS), smoother.getValues()[0], EPSILON);
+    }
+}
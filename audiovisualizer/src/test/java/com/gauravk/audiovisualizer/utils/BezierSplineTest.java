@@ -0,0 +1,64 @@
+package com.gauravk.audiovisualizer.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the bezier spline solvers, which check the continuity of the curve at the knots.
+ */
+public class BezierSplineTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void closedCurve_isSmoothAtEveryKnot() {
+        BezierSpline spline = new BezierSpline(60);
+        Random random = new Random(42);
+        float[] x = new float[60], y = new float[60];
+
+        for (int n = 3; n <= 60; n++) {
+            for (int i = 0; i < n; i++) {
+                x[i] = 500 + 200 * random.nextFloat();
+                y[i] = 500 + 200 * random.nextFloat();
+            }
+            spline.updateClosedCurveControlPoints(x, y, n);
+            assertClosedContinuity(x, spline.getFirstControlPointsX(), spline.getSecondControlPointsX(), n);
+            assertClosedContinuity(y, spline.getFirstControlPointsY(), spline.getSecondControlPointsY(), n);
+        }
+    }
+
+    @Test
+    public void openCurve_isSmoothAtInnerKnots() {
+        BezierSpline spline = new BezierSpline(30);
+        Random random = new Random(7);
+        float[] x = new float[30], y = new float[30];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = 40 * i;
+            y[i] = 300 * random.nextFloat();
+        }
+
+        spline.updateCurveControlPoints(x, y, x.length);
+        float[] first = spline.getFirstControlPointsY(), second = spline.getSecondControlPointsY();
+        for (int i = 1; i < x.length - 1; i++) {
+            assertEquals(2 * y[i], first[i] + second[i - 1], EPSILON);
+            assertEquals(first[i - 1] - 2 * second[i - 1], -2 * first[i] + second[i], EPSILON);
+        }
+    }
+
+    /**
+     * The first and second derivatives of the segments which meet at a knot are equal,
+     * the segment i goes from knot i to knot i + 1 and the last one back to knot 0
+     */
+    private static void assertClosedContinuity(float[] knots, float[] first, float[] second, int n) {
+        for (int i = 0; i < n; i++) {
+            int previous = i > 0 ? i - 1 : n - 1;
+            // P'(1) of the previous segment and P'(0) of this one
+            assertEquals(2 * knots[i], first[i] + second[previous], EPSILON);
+            // P''(1) of the previous segment and P''(0) of this one
+            assertEquals(first[previous] - 2 * second[previous], -2 * first[i] + second[i], EPSILON);
+        }
+    }
+}
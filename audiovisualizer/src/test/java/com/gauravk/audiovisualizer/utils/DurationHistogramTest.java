@@ -0,0 +1,78 @@
+package com.gauravk.audiovisualizer.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the duration histogram of the frame statistics.
+ */
+public class DurationHistogramTest {
+
+    private static final long MICROS = 1000L;
+
+    @Test
+    public void empty_reportsZero() {
+        DurationHistogram histogram = new DurationHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void shortDurations_areExact() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 0; i < 10; i++)
+            histogram.record(i * MICROS);
+
+        // the upper bound of the bucket of 4us
+        assertEquals(5 * MICROS, histogram.getPercentileNanos(50));
+        assertEquals(9 * MICROS, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void percentiles_withinBucketPrecision() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 100 * MICROS);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(50050 * MICROS, histogram.getMeanNanos());
+        assertPercentile(50000 * MICROS, histogram.getPercentileNanos(50));
+        assertPercentile(95000 * MICROS, histogram.getPercentileNanos(95));
+        assertPercentile(99000 * MICROS, histogram.getPercentileNanos(99));
+        assertEquals(histogram.getMaxNanos(), histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void longDurations_reportMax() {
+        DurationHistogram histogram = new DurationHistogram();
+        histogram.record(10 * 1000000000L);
+
+        assertEquals(10 * 1000000000L, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void copyTo_keepsSourceUntilReset() {
+        DurationHistogram histogram = new DurationHistogram();
+        DurationHistogram copy = new DurationHistogram();
+        histogram.record(700 * MICROS);
+        histogram.record(900 * MICROS);
+        histogram.copyTo(copy);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(2, copy.getCount());
+        assertEquals(900 * MICROS, copy.getMaxNanos());
+        assertEquals(800 * MICROS, copy.getMeanNanos());
+    }
+
+    /**
+     * The percentile is the upper bound of its bucket, at most one sub bucket above the exact value
+     */
+    private static void assertPercentile(long expectedNanos, long actualNanos) {
+        assertTrue(actualNanos >= expectedNanos);
+        assertTrue(actualNanos <= expectedNanos + expectedNanos / 16);
+    }
+}
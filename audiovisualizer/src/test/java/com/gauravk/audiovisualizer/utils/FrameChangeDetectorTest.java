@@ -0,0 +1,81 @@
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.DataSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the detection of frames which would not change the visualization.
+ */
+public class FrameChangeDetectorTest {
+
+    private static AudioFrame createFrame(int amplitude) {
+        byte[] waveform = new byte[256];
+        for (int i = 0; i < waveform.length; i++)
+            waveform[i] = (byte) (128 + amplitude * Math.sin(i * 2 * Math.PI / 32));
+
+        AudioFrame frame = new AudioFrame();
+        frame.setWaveform(waveform);
+        return frame;
+    }
+
+    @Test
+    public void firstFrame_isChanged() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+
+        assertTrue(detector.isChanged(createFrame(0), DataSource.WAVEFORM, 0));
+    }
+
+    @Test
+    public void silenceAfterSilence_isSkipped() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+        detector.isChanged(createFrame(0), DataSource.WAVEFORM, 0);
+
+        // below the default silence threshold of 2/128
+        assertFalse(detector.isChanged(createFrame(1), DataSource.WAVEFORM, 0));
+        assertTrue(detector.isChanged(createFrame(40), DataSource.WAVEFORM, 0));
+    }
+
+    @Test
+    public void smallChange_isSkipped() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+        detector.isChanged(createFrame(60), DataSource.WAVEFORM, 0);
+
+        assertFalse(detector.isChanged(createFrame(61), DataSource.WAVEFORM, 0));
+        assertTrue(detector.isChanged(createFrame(70), DataSource.WAVEFORM, 0));
+    }
+
+    @Test
+    public void slowDrift_isComparedToLastChange() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+        detector.isChanged(createFrame(60), DataSource.WAVEFORM, 0);
+
+        // each step is below the change threshold, the sum is not
+        assertFalse(detector.isChanged(createFrame(61), DataSource.WAVEFORM, 0));
+        assertTrue(detector.isChanged(createFrame(63), DataSource.WAVEFORM, 0));
+    }
+
+    @Test
+    public void unchangedFrames_letThroughToSettle() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+        AudioFrame frame = createFrame(60);
+        detector.isChanged(frame, DataSource.WAVEFORM, 2);
+
+        assertTrue(detector.isChanged(frame, DataSource.WAVEFORM, 2));
+        assertTrue(detector.isChanged(frame, DataSource.WAVEFORM, 2));
+        assertFalse(detector.isChanged(frame, DataSource.WAVEFORM, 2));
+    }
+
+    @Test
+    public void reset_forgetsReference() {
+        FrameChangeDetector detector = new FrameChangeDetector();
+        AudioFrame frame = createFrame(60);
+        detector.isChanged(frame, DataSource.WAVEFORM, 0);
+        detector.reset();
+
+        assertTrue(detector.isChanged(frame, DataSource.WAVEFORM, 0));
+    }
+}
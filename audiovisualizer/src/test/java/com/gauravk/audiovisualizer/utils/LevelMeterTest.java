@@ -0,0 +1,101 @@
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.AudioLevels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the level meter, its sliding window and its held peak.
+ */
+public class LevelMeterTest {
+
+    private static final float EPSILON = 1e-5f;
+    private static final long MILLIS = 1000000L;
+
+    @Test
+    public void samples_measurePeakAndRms() {
+        LevelMeter meter = new LevelMeter();
+        float[] samples = {0.5f, -0.5f, 0.5f, -1};
+        meter.addSamples(samples, samples.length, 0);
+
+        AudioLevels levels = new AudioLevels();
+        meter.getLevels(levels);
+        assertEquals(1, levels.getPeak(), EPSILON);
+        assertEquals((float) Math.sqrt(1.75 / 4), levels.getRms(), EPSILON);
+    }
+
+    @Test
+    public void shortTermPeak_leavesWithItsFrame() {
+        LevelMeter meter = new LevelMeter();
+        meter.setWindow(100 * MILLIS);
+        AudioLevels levels = new AudioLevels();
+
+        meter.addLevels(0.8f, 0.4f, 0);
+        meter.addLevels(0.3f, 0.1f, 50 * MILLIS);
+        meter.addLevels(0.5f, 0.2f, 90 * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.8f, levels.getShortTermPeak(), EPSILON);
+        assertEquals((float) Math.sqrt((0.16 + 0.01 + 0.04) / 3), levels.getShortTermRms(), EPSILON);
+
+        // the loud frame left the window, the next highest peak is the one queued after it
+        meter.addLevels(0.2f, 0.1f, 120 * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.5f, levels.getShortTermPeak(), EPSILON);
+        assertEquals(0.2f, levels.getPeak(), EPSILON);
+    }
+
+    @Test
+    public void fullWindow_dropsOldestFrame() {
+        LevelMeter meter = new LevelMeter();
+        meter.setWindow(1000000 * MILLIS);
+        AudioLevels levels = new AudioLevels();
+
+        meter.addLevels(1, 1, 0);
+        for (int i = 1; i <= 64; i++)
+            meter.addLevels(0.25f, 0.25f, i * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.25f, levels.getShortTermPeak(), EPSILON);
+        assertEquals(0.25f, levels.getShortTermRms(), EPSILON);
+    }
+
+    @Test
+    public void peakHold_decaysAfterHoldTime() {
+        LevelMeter meter = new LevelMeter();
+        meter.setPeakHold(500 * MILLIS, 0.5f);
+        AudioLevels levels = new AudioLevels();
+
+        meter.addLevels(0.9f, 0.5f, 0);
+        meter.addLevels(0.1f, 0.1f, 400 * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.9f, levels.getPeakHold(), EPSILON);
+
+        // 200ms past the hold time at 0.5 per second
+        meter.addLevels(0.1f, 0.1f, 700 * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.8f, levels.getPeakHold(), EPSILON);
+
+        meter.addLevels(0.1f, 0.1f, 900 * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.7f, levels.getPeakHold(), EPSILON);
+
+        // never below the current peak
+        meter.addLevels(0.6f, 0.1f, 2000 * MILLIS);
+        meter.getLevels(levels);
+        assertEquals(0.6f, levels.getPeakHold(), EPSILON);
+    }
+
+    @Test
+    public void reset_clearsLevels() {
+        LevelMeter meter = new LevelMeter();
+        meter.addLevels(0.9f, 0.5f, 0);
+        meter.reset();
+
+        AudioLevels levels = new AudioLevels();
+        meter.getLevels(levels);
+        assertEquals(0, levels.getShortTermPeak(), 0);
+        assertEquals(0, levels.getShortTermRms(), 0);
+        assertEquals(0, levels.getPeakHold(), 0);
+    }
+}
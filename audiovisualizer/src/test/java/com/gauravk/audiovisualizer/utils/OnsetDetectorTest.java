@@ -0,0 +1,103 @@
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+import com.gauravk.audiovisualizer.model.DataSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the onset detection and its adaptive threshold.
+ */
+public class OnsetDetectorTest {
+
+    private static final long START_NANOS = 1000000000L;
+    private static final long FRAME_NANOS = 20000000L;
+
+    private static AudioFrame createFrame(int amplitude) {
+        byte[] waveform = new byte[256];
+        for (int i = 0; i < waveform.length; i++)
+            waveform[i] = (byte) (128 + amplitude * Math.sin(i * 2 * Math.PI / 32));
+
+        AudioFrame frame = new AudioFrame();
+        frame.setWaveform(waveform);
+        return frame;
+    }
+
+    /**
+     * Feeds frames of the given amplitudes, one frame interval apart
+     *
+     * @return number of onsets
+     */
+    private static int process(OnsetDetector detector, int[] amplitudes, int firstFrame) {
+        int onsets = 0;
+        for (int i = 0; i < amplitudes.length; i++) {
+            long time = START_NANOS + (firstFrame + i) * FRAME_NANOS;
+            if (detector.process(createFrame(amplitudes[i]), DataSource.WAVEFORM, time))
+                onsets++;
+        }
+        return onsets;
+    }
+
+    private static int[] repeat(int[] pattern, int count) {
+        int[] amplitudes = new int[count];
+        for (int i = 0; i < count; i++)
+            amplitudes[i] = pattern[i % pattern.length];
+        return amplitudes;
+    }
+
+    @Test
+    public void steadySignal_hasNoOnset() {
+        OnsetDetector detector = new OnsetDetector();
+
+        assertEquals(0, process(detector, repeat(new int[]{40, 41, 40, 39}, 40), 0));
+    }
+
+    @Test
+    public void suddenRise_isOnset() {
+        OnsetDetector detector = new OnsetDetector();
+        process(detector, repeat(new int[]{20, 21, 20, 19}, 20), 0);
+
+        long time = START_NANOS + 20 * FRAME_NANOS;
+        assertTrue(detector.process(createFrame(100), DataSource.WAVEFORM, time));
+        assertEquals(time, detector.getOnsetTimeNanos());
+        assertTrue(detector.getOnsetStrength() > 0 && detector.getOnsetStrength() <= 1);
+    }
+
+    @Test
+    public void riseWithoutHistory_isNotOnset() {
+        OnsetDetector detector = new OnsetDetector();
+
+        assertEquals(0, process(detector, new int[]{20, 20, 20, 100}, 0));
+    }
+
+    @Test
+    public void onsetsCloserThanMinInterval_areMerged() {
+        OnsetDetector detector = new OnsetDetector();
+        detector.setMinInterval(3 * FRAME_NANOS);
+        process(detector, repeat(new int[]{20, 21, 20, 19}, 20), 0);
+
+        // the second rise follows one frame of silence
+        assertEquals(1, process(detector, new int[]{100, 0, 100}, 20));
+    }
+
+    @Test
+    public void threshold_adaptsToRecentNovelty() {
+        OnsetDetector detector = new OnsetDetector();
+
+        // a rise as large as the ones of a pulsing signal does not stand out of it
+        assertEquals(0, process(detector, repeat(new int[]{20, 60}, 40), 0));
+        assertEquals(1, process(detector, new int[]{20, 120}, 40));
+    }
+
+    @Test
+    public void reset_forgetsHistory() {
+        OnsetDetector detector = new OnsetDetector();
+        process(detector, repeat(new int[]{20, 21, 20, 19}, 20), 0);
+        detector.reset();
+
+        assertEquals(0, detector.getOnsetTimeNanos());
+        assertEquals(0, process(detector, new int[]{20, 100}, 20));
+    }
+}
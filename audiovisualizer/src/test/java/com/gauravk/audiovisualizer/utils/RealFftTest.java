@@ -0,0 +1,124 @@
+package com.gauravk.audiovisualizer.utils;
+
+import com.gauravk.audiovisualizer.model.FftWindow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the real fft against a naive DFT, and of its scale against the captured spectra.
+ */
+public class RealFftTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void magnitudes_matchNaiveDft() {
+        Random random = new Random(7);
+        for (FftWindow window : FftWindow.values()) {
+            for (int size = AVConstants.MIN_FFT_SIZE; size <= AVConstants.MAX_FFT_SIZE; size *= 2) {
+                float[] samples = new float[size];
+                for (int i = 0; i < size; i++)
+                    samples[i] = 0.5f * (float) Math.sin(2 * Math.PI * 13.3 * i / size)
+                            + 0.25f * (random.nextFloat() * 2 - 1);
+
+                float[] magnitudes = new float[SpectrumUtils.getBinCount(size)];
+                RealFft fft = new RealFft(size, window);
+                assertEquals(size / 2 + 1, fft.computeMagnitudes(samples, size, magnitudes));
+
+                float[] expected = computeNaiveMagnitudes(samples, size, window);
+                for (int k = 0; k <= size / 2; k++)
+                    assertEquals(window + " " + size + " bin " + k, expected[k], magnitudes[k], EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void missingSamples_areZero() {
+        int size = 512;
+        float[] samples = new float[size];
+        float[] padded = new float[size];
+        for (int i = 0; i < 300; i++)
+            samples[i] = padded[i] = (float) Math.sin(0.3 * i);
+        // garbage past the valid samples must not be read
+        for (int i = 300; i < size; i++)
+            samples[i] = 1;
+
+        RealFft fft = new RealFft(size, FftWindow.HANN);
+        float[] actual = new float[size / 2 + 1];
+        fft.computeMagnitudes(samples, 300, actual);
+        float[] expected = computeNaiveMagnitudes(padded, size, FftWindow.HANN);
+        for (int k = 0; k <= size / 2; k++)
+            assertEquals(expected[k], actual[k], EPSILON);
+    }
+
+    @Test
+    public void halfScaleSine_matchesHalfScaleCapturedBin() {
+        int size = 1024, bin = 16;
+        float[] samples = new float[size];
+        for (int i = 0; i < size; i++)
+            samples[i] = 0.5f * (float) Math.cos(2 * Math.PI * bin * i / size);
+        float[] computed = new float[size / 2 + 1];
+        new RealFft(size, FftWindow.HANN).computeMagnitudes(samples, size, computed);
+
+        // a bin of the captured bytes at half of their full scale magnitude, 128 * sqrt(2)
+        byte[] bytes = new byte[size];
+        bytes[2 * bin] = 64;
+        bytes[2 * bin + 1] = 64;
+        float[] captured = new float[size / 2 + 1];
+        SpectrumUtils.computeMagnitudes(bytes, captured);
+
+        assertEquals(captured[bin], computed[bin], EPSILON);
+        assertEquals(1 - 6.0206f / (float) (10 * Math.log10(2 * 128 * 128)), computed[bin], EPSILON);
+    }
+
+    @Test
+    public void fittingSize_isClamped() {
+        assertEquals(AVConstants.MIN_FFT_SIZE, RealFft.getFittingSize(10));
+        assertEquals(1024, RealFft.getFittingSize(2000));
+        assertEquals(2048, RealFft.getFittingSize(2048));
+        assertEquals(AVConstants.MAX_FFT_SIZE, RealFft.getFittingSize(100000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedSize_throws() {
+        new RealFft(1000, FftWindow.HANN);
+    }
+
+    private static float[] computeNaiveMagnitudes(float[] samples, int size, FftWindow window) {
+        double[] windowed = new double[size];
+        double gain = 0;
+        for (int i = 0; i < size; i++) {
+            double angle = 2 * Math.PI * i / size;
+            double w = window == FftWindow.BLACKMAN_HARRIS
+                    ? 0.35875 - 0.48829 * Math.cos(angle) + 0.14128 * Math.cos(2 * angle) - 0.01168 * Math.cos(3 * angle)
+                    : 0.5 - 0.5 * Math.cos(angle);
+            windowed[i] = samples[i] * w;
+            gain += w;
+        }
+
+        double[] cos = new double[size], sin = new double[size];
+        for (int i = 0; i < size; i++) {
+            cos[i] = Math.cos(2 * Math.PI * i / size);
+            sin[i] = Math.sin(2 * Math.PI * i / size);
+        }
+
+        float[] magnitudes = new float[size / 2 + 1];
+        for (int k = 0; k <= size / 2; k++) {
+            double re = 0, im = 0;
+            for (int n = 0; n < size; n++) {
+                int index = (int) ((long) k * n % size);
+                re += windowed[n] * cos[index];
+                im -= windowed[n] * sin[index];
+            }
+            double amplitude = Math.hypot(re, im) / gain;
+            if (k != 0 && k != size / 2)
+                amplitude *= 2;
+            magnitudes[k] = amplitude <= 0 ? 0 : SpectrumUtils.normalizeDecibels((float) (20 * Math.log10(amplitude)));
+        }
+        return magnitudes;
+    }
+}
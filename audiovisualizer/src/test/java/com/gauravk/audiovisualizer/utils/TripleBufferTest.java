@@ -0,0 +1,90 @@
+package com.gauravk.audiovisualizer.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the frame hand off between the capture and the drawing threads.
+ */
+public class TripleBufferTest {
+
+    private static TripleBuffer<int[]> createBuffer() {
+        return new TripleBuffer<>(new int[2], new int[2], new int[2]);
+    }
+
+    @Test
+    public void update_withoutPublish_keepsFront() {
+        TripleBuffer<int[]> buffer = createBuffer();
+        int[] front = buffer.getFrontSlot();
+
+        buffer.getBackSlot()[0] = 1;
+        assertFalse(buffer.update());
+        assertSame(front, buffer.getFrontSlot());
+    }
+
+    @Test
+    public void publish_handsBackSlotToFront() {
+        TripleBuffer<int[]> buffer = createBuffer();
+        int[] back = buffer.getBackSlot();
+        back[0] = 1;
+        buffer.publish();
+
+        assertNotSame(back, buffer.getBackSlot());
+        assertTrue(buffer.update());
+        assertSame(back, buffer.getFrontSlot());
+        assertFalse(buffer.update());
+    }
+
+    @Test
+    public void update_takesLatestPublished() {
+        TripleBuffer<int[]> buffer = createBuffer();
+        for (int i = 1; i <= 3; i++) {
+            buffer.getBackSlot()[0] = i;
+            buffer.publish();
+        }
+
+        assertTrue(buffer.update());
+        assertEquals(3, buffer.getFrontSlot()[0]);
+    }
+
+    @Test
+    public void slots_neverShared() {
+        TripleBuffer<int[]> buffer = createBuffer();
+        for (int i = 0; i < 10; i++) {
+            buffer.publish();
+            if (i % 3 == 0)
+                buffer.update();
+            assertNotSame(buffer.getBackSlot(), buffer.getFrontSlot());
+        }
+    }
+
+    @Test
+    public void concurrentHandOff_neverTearsFrames() throws InterruptedException {
+        final TripleBuffer<int[]> buffer = createBuffer();
+        final int frames = 200000;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= frames; i++) {
+                    int[] slot = buffer.getBackSlot();
+                    slot[0] = i;
+                    slot[1] = -i;
+                    buffer.publish();
+                }
+            }
+        });
+        producer.start();
+
+        int last = 0;
+        while (last < frames) {
+            if (!buffer.update())
+                continue;
+            int[] slot = buffer.getFrontSlot();
+            assertEquals(slot[0], -slot[1]);
+            assertTrue(slot[0] > last);
+            last = slot[0];
+        }
+        producer.join();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.benchmark;
+
+import com.gauravk.audiovisualizer.utils.BezierSpline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Control point computation of the wave and the blob curves.
+ * The knot counts span the wave from the lowest to the highest density.
+ */
+@State(Scope.Thread)
+public class BezierSplineBenchmark {
+
+    @Param({"3", "8", "15", "28", "42", "55", "62"})
+    public int knots;
+
+    private BezierSpline mSpline;
+    private float[] mX, mY;
+
+    @Setup
+    public void setup() {
+        mSpline = new BezierSpline(knots);
+        mX = new float[knots];
+        mY = new float[knots];
+        for (int i = 0; i < knots; i++) {
+            mX[i] = i * 20;
+            mY[i] = (float) (300 + 200 * Math.sin(i * 0.7));
+        }
+    }
+
+    @Benchmark
+    public void openCurve(Blackhole blackhole) {
+        mSpline.updateCurveControlPoints(mX, mY, knots);
+        blackhole.consume(mSpline.getFirstControlPointsX());
+    }
+
+    @Benchmark
+    public void closedCurve(Blackhole blackhole) {
+        mSpline.updateClosedCurveControlPoints(mX, mY, knots);
+        blackhole.consume(mSpline.getFirstControlPointsX());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.benchmark;
+
+import com.gauravk.audiovisualizer.model.AudioFrame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Capture frames fed to the benchmarks.
+ * <p>
+ * The frames are synthetic unless the {@code benchmark.frames} system property points to a recording,
+ * a plain concatenation of waveform captures of {@link #CAPTURE_SIZE} bytes, as received by
+ * {@code Visualizer.OnDataCaptureListener#onWaveFormDataCapture}. The fft of each frame is computed
+ * from its waveform in the format of {@code Visualizer#getFft(byte[])}.
+ */
+final class CaptureFrames {
+
+    static final int CAPTURE_SIZE = 1024;
+    static final long CAPTURE_INTERVAL_NANOS = 50000000L;
+
+    private static final int SYNTHETIC_FRAMES = 32;
+
+    private CaptureFrames() {
+    }
+
+    static AudioFrame[] load() throws IOException {
+        String path = System.getProperty("benchmark.frames");
+        byte[][] waveforms = path != null ? readRecording(path) : synthesize();
+
+        AudioFrame[] frames = new AudioFrame[waveforms.length];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new AudioFrame();
+            frames[i].setWaveform(waveforms[i]);
+            frames[i].setFft(toFft(waveforms[i]));
+            frames[i].captureTimeNanos = (i + 1) * CAPTURE_INTERVAL_NANOS;
+            frames[i].captureIntervalNanos = CAPTURE_INTERVAL_NANOS;
+        }
+        return frames;
+    }
+
+    private static byte[][] readRecording(String path) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(path));
+        int count = bytes.length / CAPTURE_SIZE;
+        if (count == 0)
+            throw new IOException("Recording " + path + " holds no complete frame");
+
+        byte[][] waveforms = new byte[count][CAPTURE_SIZE];
+        for (int i = 0; i < count; i++)
+            System.arraycopy(bytes, i * CAPTURE_SIZE, waveforms[i], 0, CAPTURE_SIZE);
+        return waveforms;
+    }
+
+    /**
+     * A few tones under a beating envelope with some noise, seeded so the runs are comparable
+     */
+    private static byte[][] synthesize() {
+        Random random = new Random(42);
+        byte[][] waveforms = new byte[SYNTHETIC_FRAMES][CAPTURE_SIZE];
+        for (int f = 0; f < SYNTHETIC_FRAMES; f++) {
+            double envelope = 0.3 + 0.6 * Math.abs(Math.sin(f * Math.PI / 8));
+            for (int i = 0; i < CAPTURE_SIZE; i++) {
+                double t = f * CAPTURE_SIZE + i;
+                double sample = 0.5 * Math.sin(t * 2 * Math.PI / 200)
+                        + 0.3 * Math.sin(t * 2 * Math.PI / 37)
+                        + 0.2 * Math.sin(t * 2 * Math.PI / 9)
+                        + 0.1 * random.nextGaussian();
+                int value = (int) Math.round(envelope * sample * 127);
+                waveforms[f][i] = (byte) (Math.max(-128, Math.min(127, value)) + 128);
+            }
+        }
+        return waveforms;
+    }
+
+    /**
+     * Plain dft of the unsigned 8 bit waveform, only run while setting up
+     */
+    private static byte[] toFft(byte[] waveform) {
+        int n = waveform.length;
+        byte[] fft = new byte[n];
+        for (int k = 0; k <= n / 2; k++) {
+            double re = 0, im = 0;
+            for (int i = 0; i < n; i++) {
+                double sample = (waveform[i] & 0xFF) - 128;
+                double angle = 2 * Math.PI * k * i / n;
+                re += sample * Math.cos(angle);
+                im -= sample * Math.sin(angle);
+            }
+            re = re * 2 / n;
+            im = im * 2 / n;
+            if (k == 0)
+                fft[0] = toByte(re);
+            else if (k == n / 2)
+                fft[1] = toByte(re);
+            else {
+                fft[2 * k] = toByte(re);
+                fft[2 * k + 1] = toByte(im);
+            }
+        }
+        return fft;
+    }
+
+    private static byte toByte(double value) {
+        return (byte) Math.max(-128, Math.min(127, Math.round(value)));
+    }
+}
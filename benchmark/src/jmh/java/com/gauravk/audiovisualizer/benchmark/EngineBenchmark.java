@@ -0,0 +1,63 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.benchmark;
+
+import com.gauravk.audiovisualizer.engine.VisualizerEngine;
+import com.gauravk.audiovisualizer.model.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Cost of a display frame of every visualizer, the amplitude to height mapping included
+ */
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    @Param({"bar", "wave", "blast", "blob", "circleLine", "hiFi"})
+    public String engine;
+
+    @Param({"WAVEFORM", "SPECTRUM"})
+    public DataSource source;
+
+    @Param({"0.25", "0.5", "1.0"})
+    public float density;
+
+    private VisualizerEngine mEngine;
+    private Engines.Clock mClock;
+
+    @Setup
+    public void setup() throws IOException {
+        mEngine = Engines.create(engine);
+        mEngine.setDataSource(source);
+        mEngine.setDensity(density);
+        mEngine.setSize(Engines.WIDTH, Engines.HEIGHT);
+        mClock = new Engines.Clock(CaptureFrames.load());
+    }
+
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        long frameTime = mClock.next();
+        blackhole.consume(mEngine.update(mClock.frame(), frameTime));
+        blackhole.consume(mEngine.getGeometry());
+    }
+}
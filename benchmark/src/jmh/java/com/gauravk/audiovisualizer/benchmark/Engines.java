@@ -0,0 +1,87 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.benchmark;
+
+import com.gauravk.audiovisualizer.engine.BarEngine;
+import com.gauravk.audiovisualizer.engine.BlastEngine;
+import com.gauravk.audiovisualizer.engine.BlobEngine;
+import com.gauravk.audiovisualizer.engine.CircleLineEngine;
+import com.gauravk.audiovisualizer.engine.HiFiEngine;
+import com.gauravk.audiovisualizer.engine.VisualizerEngine;
+import com.gauravk.audiovisualizer.engine.WaveEngine;
+import com.gauravk.audiovisualizer.model.AudioFrame;
+
+/**
+ * Creates the engines by the names used in the benchmark parameters
+ */
+final class Engines {
+
+    // display frames are 60Hz, captures are 20Hz, so a capture frame is shown for three display frames
+    static final long FRAME_INTERVAL_NANOS = 16666667L;
+
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 720;
+
+    private Engines() {
+    }
+
+    static VisualizerEngine create(String name) {
+        switch (name) {
+            case "bar":
+                return new BarEngine();
+            case "wave":
+                return new WaveEngine();
+            case "blast":
+                return new BlastEngine();
+            case "blob":
+                return new BlobEngine();
+            case "circleLine":
+                CircleLineEngine engine = new CircleLineEngine();
+                engine.setDrawLine(true);
+                return engine;
+            case "hiFi":
+                return new HiFiEngine();
+            default:
+                throw new IllegalArgumentException("Unknown engine " + name);
+        }
+    }
+
+    /**
+     * Steps the engines through the capture frames at the display refresh rate
+     */
+    static final class Clock {
+
+        private final AudioFrame[] mFrames;
+        private long mFrameTimeNanos;
+
+        Clock(AudioFrame[] frames) {
+            this.mFrames = frames;
+        }
+
+        long next() {
+            mFrameTimeNanos += FRAME_INTERVAL_NANOS;
+            return mFrameTimeNanos;
+        }
+
+        AudioFrame frame() {
+            int index = (int) (mFrameTimeNanos / CaptureFrames.CAPTURE_INTERVAL_NANOS) % mFrames.length;
+            AudioFrame frame = mFrames[index];
+            // keep the capture time ahead of the clock as the frames loop
+            frame.captureTimeNanos = mFrameTimeNanos - mFrameTimeNanos % CaptureFrames.CAPTURE_INTERVAL_NANOS;
+            return frame;
+        }
+    }
+}
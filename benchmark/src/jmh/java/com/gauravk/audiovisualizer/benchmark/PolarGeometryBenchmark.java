@@ -0,0 +1,58 @@
+/*
+        Copyright 2018 Gaurav Kumar
+
+        Licensed under the Apache License, Version 2.0 (the "License");
+        you may not use this file except in compliance with the License.
+        You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+        Unless required by applicable law or agreed to in writing, software
+        distributed under the License is distributed on an "AS IS" BASIS,
+        WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        See the License for the specific language governing permissions and
+        limitations under the License.
+*/
+package com.gauravk.audiovisualizer.benchmark;
+
+import com.gauravk.audiovisualizer.engine.VisualizerEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Polar point generation of the radial visualizers at every density step
+ */
+@State(Scope.Thread)
+public class PolarGeometryBenchmark {
+
+    @Param({"blast", "hiFi"})
+    public String engine;
+
+    @Param({"0.1", "0.2", "0.3", "0.4", "0.5", "0.6", "0.7", "0.8", "0.9", "1.0"})
+    public float density;
+
+    private VisualizerEngine mEngine;
+    private Engines.Clock mClock;
+
+    @Setup
+    public void setup() throws IOException {
+        mEngine = Engines.create(engine);
+        mEngine.setDensity(density);
+        mEngine.setSize(Engines.WIDTH, Engines.HEIGHT);
+        mClock = new Engines.Clock(CaptureFrames.load());
+    }
+
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        long frameTime = mClock.next();
+        blackhole.consume(mEngine.update(mClock.frame(), frameTime));
+        blackhole.consume(mEngine.getGeometry());
+    }
+}